@@ -13,6 +13,8 @@ public class AndroidLauncher extends AndroidApplication {
         super.onCreate(savedInstanceState);
         AndroidApplicationConfiguration configuration = new AndroidApplicationConfiguration();
         configuration.useImmersiveMode = true; // Recommended, but not required.
+        // ES 3.0 makes ETC2 textures available; devices without it fall back to ES 2.0
+        configuration.useGL30 = true;
         initialize(new MainGame(), configuration);
     }
 }
\ No newline at end of file
@@ -0,0 +1,85 @@
+package com.marccortes.spaceInvaders;
+
+import com.badlogic.gdx.math.MathUtils;
+
+// The boss's bullet patterns, written as data and compiled into velocity tables when the
+// class loads, so firing a volley is a loop of multiply-adds with no trigonometry:
+// - radial: a fixed fan around straight down, or a full ring
+// - aimed: a fan around the +x axis, rotated onto the target once per volley
+// - spiral: a ring turning by a fixed step every volley; the table holds every turn
+// The boss works through a schedule of patterns and switches to a denser one when weakened.
+// Tables are immutable and shared by every match.
+final class BulletPatterns {
+    static final int RADIAL = 0, AIMED = 1, SPIRAL = 2;
+    static final float START_DELAY = 1.5f; // before the first volley of a boss fight
+    private static final float ENRAGE_HEALTH = 1f / 3f; // health fraction below which the second schedule runs
+
+    static final class Pattern {
+        final int shape, bullets, volleys;
+        final float volleyInterval, rest; // seconds between volleys, and after the last one
+        final float[] velocityX, velocityY; // bullets per volley times the number of turns
+        private final int turns;
+
+        private Pattern(int shape, int bullets, float spreadDegrees, float stepDegrees, float speed,
+                        int volleys, float volleyInterval, float rest) {
+            this.shape = shape;
+            this.bullets = bullets;
+            this.volleys = volleys;
+            this.volleyInterval = volleyInterval;
+            this.rest = rest;
+            // A spiral's step is rounded so that its turns close the circle exactly
+            turns = shape == SPIRAL ? Math.max(1, Math.round(360f / stepDegrees)) : 1;
+            velocityX = new float[turns * bullets];
+            velocityY = new float[turns * bullets];
+            float center = shape == AIMED ? 0f : -90f;
+            boolean ring = spreadDegrees >= 360f;
+            float gap = ring ? 360f / bullets : bullets > 1 ? spreadDegrees / (bullets - 1) : 0f;
+            float first = ring ? center : center - spreadDegrees / 2f;
+            for (int turn = 0; turn < turns; turn++) {
+                for (int k = 0; k < bullets; k++) {
+                    float angle = (first + turn * 360f / turns + k * gap) * MathUtils.degreesToRadians;
+                    velocityX[turn * bullets + k] = (float) Math.cos(angle) * speed;
+                    velocityY[turn * bullets + k] = (float) Math.sin(angle) * speed;
+                }
+            }
+        }
+
+        // Index of the first bullet of a volley in the tables
+        int tableOffset(int volley) {
+            return (volley % turns) * bullets;
+        }
+    }
+
+    // bullets, spread, speed, volleys, seconds between volleys, rest afterwards
+    private static final Pattern[] OPENING = {
+        radial(12, 360, 360, 3, 0.45f, 1f),
+        aimed(5, 40, 520, 4, 0.3f, 1f),
+        radial(7, 90, 450, 5, 0.25f, 0.8f),
+        spiral(4, 11, 340, 30, 0.08f, 1.2f),
+    };
+    private static final Pattern[] ENRAGED = {
+        spiral(6, 7, 380, 60, 0.05f, 0.8f), // 120 bullets a second
+        aimed(9, 70, 600, 5, 0.2f, 0.6f),
+        radial(24, 360, 300, 4, 0.3f, 0.8f),
+    };
+
+    private BulletPatterns() {
+    }
+
+    static Pattern[] schedule(int healthPoints, int maxHealthPoints) {
+        return healthPoints < maxHealthPoints * ENRAGE_HEALTH ? ENRAGED : OPENING;
+    }
+
+    private static Pattern radial(int bullets, float spread, float speed, int volleys, float interval, float rest) {
+        return new Pattern(RADIAL, bullets, spread, 0f, speed, volleys, interval, rest);
+    }
+
+    private static Pattern aimed(int bullets, float spread, float speed, int volleys, float interval, float rest) {
+        return new Pattern(AIMED, bullets, spread, 0f, speed, volleys, interval, rest);
+    }
+
+    // A full ring of arms that turns by step degrees each volley
+    private static Pattern spiral(int arms, float step, float speed, int volleys, float interval, float rest) {
+        return new Pattern(SPIRAL, arms, 360f, step, speed, volleys, interval, rest);
+    }
+}
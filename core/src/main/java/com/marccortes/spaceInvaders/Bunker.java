@@ -0,0 +1,225 @@
+package com.marccortes.spaceInvaders;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.glutils.PixmapTextureData;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.BufferUtils;
+import com.badlogic.gdx.utils.Disposable;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+// Destructible shield between the player and the formation.
+// The damage state is one bit per cell (a single long per row), projectiles are tested
+// against the bits directly, and only the rectangle touched since the last frame is
+// re-uploaded to the texture with glTexSubImage2D.
+class Bunker implements Disposable {
+    static final int CELLS_X = 44, CELLS_Y = 32;
+    static final float CELL_SIZE = 5;
+    private static final int CRATER_RADIUS = 3;
+    private static final int SOLID_COLOR = 0x3fd957ff;
+
+    final Rectangle bounds;
+    private final long[] rows = new long[CELLS_Y]; // row 0 is the bottom row, bit x is column x
+    private final Pixmap pixmap; // y-down mirror of the bits, used to restore the texture on context loss
+    private Texture texture; // created on the first flush, so simulation-only matches never touch GL
+    private final ByteBuffer uploadBuffer;
+    private boolean dirty;
+    private int dirtyMinX, dirtyMinY, dirtyMaxX, dirtyMaxY; // in pixmap coordinates
+
+    Bunker(float x, float y) {
+        bounds = new Rectangle(x, y, CELLS_X * CELL_SIZE, CELLS_Y * CELL_SIZE);
+        pixmap = new Pixmap(CELLS_X, CELLS_Y, Pixmap.Format.RGBA8888);
+        pixmap.setBlending(Pixmap.Blending.None);
+        uploadBuffer = BufferUtils.newByteBuffer(CELLS_X * CELLS_Y * 4).order(ByteOrder.BIG_ENDIAN);
+        reset();
+    }
+
+    // Restores the classic arch shape
+    void reset() {
+        int archWidth = CELLS_X / 3;
+        int archHeight = CELLS_Y / 3;
+        for (int row = 0; row < CELLS_Y; row++) {
+            long bits = 0L;
+            for (int column = 0; column < CELLS_X; column++) {
+                int fromTop = CELLS_Y - 1 - row;
+                int fromSide = Math.min(column, CELLS_X - 1 - column);
+                boolean corner = fromTop + fromSide < 6;
+                boolean arch = row < archHeight && Math.abs(column * 2 + 1 - CELLS_X) < archWidth;
+                if (!corner && !arch) bits |= 1L << column;
+            }
+            rows[row] = bits;
+        }
+        for (int row = 0; row < CELLS_Y; row++) {
+            for (int column = 0; column < CELLS_X; column++) {
+                pixmap.drawPixel(column, CELLS_Y - 1 - row, isSolid(column, row) ? SOLID_COLOR : 0);
+            }
+        }
+        markDirty(0, 0, CELLS_X - 1, CELLS_Y - 1);
+    }
+
+    static final int SNAPSHOT_SIZE = 8 + CELLS_Y * 8;
+
+    void write(ByteBuffer buffer) {
+        buffer.putFloat(bounds.x);
+        buffer.putFloat(bounds.y);
+        for (long row : rows) buffer.putLong(row);
+    }
+
+    void read(ByteBuffer buffer) {
+        bounds.x = buffer.getFloat();
+        bounds.y = buffer.getFloat();
+        for (int row = 0; row < CELLS_Y; row++) {
+            rows[row] = buffer.getLong();
+            for (int column = 0; column < CELLS_X; column++) {
+                pixmap.drawPixel(column, CELLS_Y - 1 - row, isSolid(column, row) ? SOLID_COLOR : 0);
+            }
+        }
+        markDirty(0, 0, CELLS_X - 1, CELLS_Y - 1);
+    }
+
+    private boolean isSolid(int column, int row) {
+        return (rows[row] & (1L << column)) != 0L;
+    }
+
+    // Tests a projectile that moved by (dx, dy) this tick; on impact a crater is carved
+    // around the first solid cell met along the path and true is returned
+    boolean hit(Rectangle projectile, float dx, float dy) {
+        if (!CollisionResolver.sweptOverlaps(projectile, dx, dy, bounds)) return false;
+        // Only the part of the path inside the bunker is walked, in steps no longer than a cell
+        // or the projectile, so a fast projectile cannot skip a row of cells
+        float from = 0f, to = 1f; // fractions of the move, counted back from the end position
+        if (dx != 0f) {
+            float b1 = (projectile.x - bounds.x + projectile.width) / dx;
+            float b2 = (projectile.x - bounds.x - bounds.width) / dx;
+            from = Math.max(from, Math.min(b1, b2));
+            to = Math.min(to, Math.max(b1, b2));
+        }
+        if (dy != 0f) {
+            float b1 = (projectile.y - bounds.y + projectile.height) / dy;
+            float b2 = (projectile.y - bounds.y - bounds.height) / dy;
+            from = Math.max(from, Math.min(b1, b2));
+            to = Math.min(to, Math.max(b1, b2));
+        }
+        float step = Math.max(1f, Math.min(projectile.height, CELL_SIZE));
+        int steps = Math.max(0, (int) Math.ceil(Math.max(Math.abs(dx), Math.abs(dy)) * (to - from) / step));
+        for (int s = steps; s >= 0; s--) {
+            float back = steps == 0 ? from : from + (to - from) * s / steps;
+            float x = projectile.x - dx * back;
+            float y = projectile.y - dy * back;
+            int columnStart = Math.max(0, (int) Math.floor((x - bounds.x) / CELL_SIZE));
+            int columnEnd = Math.min(CELLS_X - 1, (int) Math.floor((x + projectile.width - bounds.x) / CELL_SIZE));
+            int rowStart = Math.max(0, (int) Math.floor((y - bounds.y) / CELL_SIZE));
+            int rowEnd = Math.min(CELLS_Y - 1, (int) Math.floor((y + projectile.height - bounds.y) / CELL_SIZE));
+            if (columnStart > columnEnd || rowStart > rowEnd) continue;
+            long span = spanMask(columnStart, columnEnd);
+            // Visit rows in the direction of travel so the crater forms on the near face
+            for (int k = 0; k <= rowEnd - rowStart; k++) {
+                int row = dy >= 0 ? rowStart + k : rowEnd - k;
+                long solid = rows[row] & span;
+                if (solid != 0L) {
+                    carve(Long.numberOfTrailingZeros(solid), row, CRATER_RADIUS);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Clears every cell under an area, e.g. an invader walking through the bunker
+    void erode(Rectangle area) {
+        if (!area.overlaps(bounds)) return;
+        int columnStart = Math.max(0, (int) Math.floor((area.x - bounds.x) / CELL_SIZE));
+        int columnEnd = Math.min(CELLS_X - 1, (int) Math.floor((area.x + area.width - bounds.x) / CELL_SIZE));
+        int rowStart = Math.max(0, (int) Math.floor((area.y - bounds.y) / CELL_SIZE));
+        int rowEnd = Math.min(CELLS_Y - 1, (int) Math.floor((area.y + area.height - bounds.y) / CELL_SIZE));
+        if (columnStart > columnEnd || rowStart > rowEnd) return;
+        long span = spanMask(columnStart, columnEnd);
+        boolean changed = false;
+        for (int row = rowStart; row <= rowEnd; row++) {
+            if ((rows[row] & span) == 0L) continue;
+            rows[row] &= ~span;
+            for (int column = columnStart; column <= columnEnd; column++) {
+                pixmap.drawPixel(column, CELLS_Y - 1 - row, 0);
+            }
+            changed = true;
+        }
+        if (changed) markDirty(columnStart, CELLS_Y - 1 - rowEnd, columnEnd, CELLS_Y - 1 - rowStart);
+    }
+
+    private void carve(int centerColumn, int centerRow, int radius) {
+        int columnStart = Math.max(0, centerColumn - radius);
+        int columnEnd = Math.min(CELLS_X - 1, centerColumn + radius);
+        int rowStart = Math.max(0, centerRow - radius);
+        int rowEnd = Math.min(CELLS_Y - 1, centerRow + radius);
+        for (int row = rowStart; row <= rowEnd; row++) {
+            for (int column = columnStart; column <= columnEnd; column++) {
+                int distanceX = column - centerColumn;
+                int distanceY = row - centerRow;
+                if (distanceX * distanceX + distanceY * distanceY > radius * radius) continue;
+                rows[row] &= ~(1L << column);
+                pixmap.drawPixel(column, CELLS_Y - 1 - row, 0);
+            }
+        }
+        markDirty(columnStart, CELLS_Y - 1 - rowEnd, columnEnd, CELLS_Y - 1 - rowStart);
+    }
+
+    private static long spanMask(int columnStart, int columnEnd) {
+        return (-1L >>> (63 - columnEnd)) & (-1L << columnStart);
+    }
+
+    private void markDirty(int minX, int minY, int maxX, int maxY) {
+        if (!dirty) {
+            dirtyMinX = minX;
+            dirtyMinY = minY;
+            dirtyMaxX = maxX;
+            dirtyMaxY = maxY;
+            dirty = true;
+        } else {
+            dirtyMinX = Math.min(dirtyMinX, minX);
+            dirtyMinY = Math.min(dirtyMinY, minY);
+            dirtyMaxX = Math.max(dirtyMaxX, maxX);
+            dirtyMaxY = Math.max(dirtyMaxY, maxY);
+        }
+    }
+
+    // Uploads the damage accumulated since the last call; must run on the render thread
+    void flush() {
+        if (texture == null) {
+            // The pixmap already holds every change so far
+            texture = new Texture(new PixmapTextureData(pixmap, null, false, false, true));
+            texture.setFilter(Texture.TextureFilter.Nearest, Texture.TextureFilter.Nearest);
+            dirty = false;
+            return;
+        }
+        if (!dirty) return;
+        int width = dirtyMaxX - dirtyMinX + 1;
+        int height = dirtyMaxY - dirtyMinY + 1;
+        uploadBuffer.clear();
+        for (int y = dirtyMinY; y <= dirtyMaxY; y++) {
+            int row = CELLS_Y - 1 - y;
+            for (int x = dirtyMinX; x <= dirtyMaxX; x++) {
+                uploadBuffer.putInt(isSolid(x, row) ? SOLID_COLOR : 0);
+            }
+        }
+        uploadBuffer.flip();
+        texture.bind();
+        Gdx.gl.glPixelStorei(GL20.GL_UNPACK_ALIGNMENT, 1);
+        Gdx.gl.glTexSubImage2D(GL20.GL_TEXTURE_2D, 0, dirtyMinX, dirtyMinY, width, height,
+            GL20.GL_RGBA, GL20.GL_UNSIGNED_BYTE, uploadBuffer);
+        dirty = false;
+    }
+
+    Texture getTexture() {
+        return texture;
+    }
+
+    @Override
+    public void dispose() {
+        if (texture != null) texture.dispose();
+        pixmap.dispose();
+    }
+}
@@ -0,0 +1,111 @@
+package com.marccortes.spaceInvaders;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.math.Rectangle;
+
+// Packed 1-bit opacity mask of a sprite, sampled at the size the sprite is drawn in the world.
+// Bit x of row y is set when the sprite is opaque at world offset (x, y) from its bottom-left
+// corner. Overlap tests AND whole 64-bit words, so they are only worth running after the
+// AABB test has already passed.
+class CollisionMask {
+    private static final int ALPHA_THRESHOLD = 0x20;
+
+    final int width, height;
+    private final int wordsPerRow;
+    private final long[] bits;
+    private int topRow = -1;
+
+    CollisionMask(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.wordsPerRow = (width + 63) >> 6;
+        this.bits = new long[wordsPerRow * height];
+    }
+
+    // Builds the union of the opaque pixels of every frame, scaled to width x height
+    static CollisionMask fromFiles(int width, int height, String... paths) {
+        CollisionMask mask = new CollisionMask(width, height);
+        for (String path : paths) {
+            Pixmap pixmap = new Pixmap(Gdx.files.internal(path));
+            try {
+                mask.addPixmap(pixmap);
+            } finally {
+                pixmap.dispose();
+            }
+        }
+        return mask;
+    }
+
+    private void addPixmap(Pixmap pixmap) {
+        int sourceWidth = pixmap.getWidth();
+        int sourceHeight = pixmap.getHeight();
+        for (int y = 0; y < height; y++) {
+            // Pixmaps are y-down, the world is y-up
+            int sourceY = sourceHeight - 1 - (y * sourceHeight) / height;
+            for (int x = 0; x < width; x++) {
+                int sourceX = (x * sourceWidth) / width;
+                if ((pixmap.getPixel(sourceX, sourceY) & 0xff) > ALPHA_THRESHOLD) {
+                    bits[y * wordsPerRow + (x >> 6)] |= 1L << (x & 63);
+                    if (y > topRow) topRow = y;
+                }
+            }
+        }
+    }
+
+    // Height of the highest opaque row above the sprite's bottom edge
+    float opaqueTop() {
+        return topRow + 1;
+    }
+
+    // 64 bits of a row starting at column bitX; columns outside the mask read as zero
+    private long wordAt(int row, int bitX) {
+        if (bitX >= width || bitX <= -64) return 0L;
+        int word = Math.floorDiv(bitX, 64);
+        int shift = bitX - (word << 6);
+        int base = row * wordsPerRow;
+        long low = word >= 0 ? bits[base + word] : 0L;
+        if (shift == 0) return low;
+        long high = word + 1 < wordsPerRow ? bits[base + word + 1] : 0L;
+        return (low >>> shift) | (high << (64 - shift));
+    }
+
+    // Whether mask a drawn at (ax, ay) and mask b drawn at (bx, by) share an opaque pixel
+    static boolean overlaps(CollisionMask a, float ax, float ay, CollisionMask b, float bx, float by) {
+        int offsetX = Math.round(bx - ax);
+        int offsetY = Math.round(by - ay);
+        int rowStart = Math.max(0, offsetY);
+        int rowEnd = Math.min(a.height, offsetY + b.height);
+        int columnStart = Math.max(0, offsetX);
+        int columnEnd = Math.min(a.width, offsetX + b.width);
+        if (rowStart >= rowEnd || columnStart >= columnEnd) return false;
+        for (int row = rowStart; row < rowEnd; row++) {
+            int base = row * a.wordsPerRow;
+            int otherRow = row - offsetY;
+            for (int x = columnStart & ~63; x < columnEnd; x += 64) {
+                if ((a.bits[base + (x >> 6)] & b.wordAt(otherRow, x - offsetX)) != 0L) return true;
+            }
+        }
+        return false;
+    }
+
+    // Whether the mask drawn at (x, y) has an opaque pixel inside a solid rectangle
+    static boolean overlaps(CollisionMask mask, float x, float y, Rectangle solid) {
+        int rowStart = Math.max(0, (int) Math.floor(solid.y - y));
+        int rowEnd = Math.min(mask.height, (int) Math.ceil(solid.y + solid.height - y));
+        int columnStart = Math.max(0, (int) Math.floor(solid.x - x));
+        int columnEnd = Math.min(mask.width, (int) Math.ceil(solid.x + solid.width - x));
+        if (rowStart >= rowEnd || columnStart >= columnEnd) return false;
+        for (int row = rowStart; row < rowEnd; row++) {
+            int base = row * mask.wordsPerRow;
+            for (int word = columnStart >> 6; word <= (columnEnd - 1) >> 6; word++) {
+                long span = -1L;
+                int first = word << 6;
+                if (columnStart > first) span &= -1L << (columnStart - first);
+                if (columnEnd < first + 64) span &= -1L >>> (first + 64 - columnEnd);
+                if ((mask.bits[base + word] & span) != 0L) return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,197 @@
+package com.marccortes.spaceInvaders;
+
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.IntArray;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Narrow phase for player projectiles against the invader formation.
+// Big projectile counts are split into chunks on a ForkJoinPool, each chunk collects its
+// hit pairs into its own buffer, and the buffers are merged in the exact order the
+// single-threaded loop visits them, so the outcome does not depend on the thread count.
+// Projectiles are tested along the path they covered this tick (swept AABB), so a long
+// frame or a fast projectile cannot tunnel through a target. AABB hits are then confirmed
+// against the sprites' alpha masks when masks are set.
+class CollisionResolver {
+    private static final int PARALLEL_THRESHOLD = 4096;
+    private static final int CHUNK_SIZE = 1024;
+
+    private final ForkJoinPool pool = ForkJoinPool.commonPool();
+    private final Array<ChunkTask> chunks = new Array<>();
+    private boolean[] projectileConsumed = new boolean[64];
+    private boolean[] invaderKilled = new boolean[64];
+    private CollisionMask projectileMask, invaderMask;
+
+    // Resolved hits in application order
+    final IntArray hitProjectiles = new IntArray();
+    final IntArray hitInvaders = new IntArray();
+
+    void setMasks(CollisionMask projectileMask, CollisionMask invaderMask) {
+        this.projectileMask = projectileMask;
+        this.invaderMask = invaderMask;
+    }
+
+    void resolve(Array<Rectangle> projectiles, FloatArray velocityX, FloatArray velocityY, float delta,
+                 Array<Rectangle> invaders) {
+        hitProjectiles.clear();
+        hitInvaders.clear();
+        if (projectileConsumed.length < projectiles.size) projectileConsumed = new boolean[projectiles.size];
+        if (invaderKilled.length < invaders.size) invaderKilled = new boolean[invaders.size];
+        Arrays.fill(projectileConsumed, 0, projectiles.size, false);
+        Arrays.fill(invaderKilled, 0, invaders.size, false);
+        if (projectiles.size == 0 || invaders.size == 0) return;
+
+        int chunkCount = projectiles.size < PARALLEL_THRESHOLD ? 1 : (projectiles.size + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        while (chunks.size < chunkCount) chunks.add(new ChunkTask());
+        for (int c = 0; c < chunkCount; c++) {
+            ChunkTask chunk = chunks.get(c);
+            chunk.reinitialize();
+            chunk.projectiles = projectiles;
+            chunk.velocityX = velocityX;
+            chunk.velocityY = velocityY;
+            chunk.delta = delta;
+            chunk.projectileMask = projectileMask;
+            chunk.invaderMask = invaderMask;
+            chunk.invaders = invaders;
+            chunk.start = c * CHUNK_SIZE;
+            chunk.end = chunkCount == 1 ? projectiles.size : Math.min(projectiles.size, chunk.start + CHUNK_SIZE);
+        }
+        if (chunkCount == 1) {
+            chunks.get(0).compute();
+        } else {
+            for (int c = 0; c < chunkCount; c++) pool.execute(chunks.get(c));
+            for (int c = 0; c < chunkCount; c++) chunks.get(c).join();
+        }
+
+        // Deterministic merge: highest projectile index first, then highest invader index,
+        // skipping pairs whose projectile or invader was already used by an earlier hit
+        for (int c = chunkCount - 1; c >= 0; c--) {
+            ChunkTask chunk = chunks.get(c);
+            for (int k = 0; k < chunk.pairProjectiles.size; k++) {
+                int i = chunk.pairProjectiles.get(k);
+                int j = chunk.pairInvaders.get(k);
+                if (projectileConsumed[i] || invaderKilled[j]) continue;
+                projectileConsumed[i] = true;
+                invaderKilled[j] = true;
+                hitProjectiles.add(i);
+                hitInvaders.add(j);
+            }
+            chunk.projectiles = null;
+            chunk.velocityX = null;
+            chunk.velocityY = null;
+            chunk.invaders = null;
+        }
+    }
+
+    boolean isProjectileConsumed(int index) {
+        return projectileConsumed[index];
+    }
+
+    boolean isInvaderKilled(int index) {
+        return invaderKilled[index];
+    }
+
+    // Tests a rectangle that moved by (dx, dy) this tick and now sits at its current
+    // position against a target, covering the whole path instead of the end point only
+    static boolean sweptOverlaps(Rectangle moving, float dx, float dy, Rectangle target) {
+        if (moving.overlaps(target)) return true;
+        float startX = moving.x - dx;
+        float startY = moving.y - dy;
+        // Minkowski sum: the target grown by the moving box, swept by its corner
+        float minX = target.x - moving.width, maxX = target.x + target.width;
+        float minY = target.y - moving.height, maxY = target.y + target.height;
+        float tEnter = 0f, tExit = 1f;
+        if (dx == 0f) {
+            if (startX <= minX || startX >= maxX) return false;
+        } else {
+            float t1 = (minX - startX) / dx;
+            float t2 = (maxX - startX) / dx;
+            tEnter = Math.max(tEnter, Math.min(t1, t2));
+            tExit = Math.min(tExit, Math.max(t1, t2));
+        }
+        if (dy == 0f) {
+            if (startY <= minY || startY >= maxY) return false;
+        } else {
+            float t1 = (minY - startY) / dy;
+            float t2 = (maxY - startY) / dy;
+            tEnter = Math.max(tEnter, Math.min(t1, t2));
+            tExit = Math.min(tExit, Math.max(t1, t2));
+        }
+        return tEnter < tExit;
+    }
+
+    // Confirms a (swept) AABB hit against the sprite masks. Only the part of the path where the
+    // boxes overlap is sampled, one mask pixel at a time, so however far a projectile moved in
+    // a tick it cannot step over a thin opaque part of either mask.
+    static boolean pixelOverlaps(CollisionMask movingMask, Rectangle moving, float dx, float dy,
+                                 CollisionMask targetMask, Rectangle target) {
+        if (movingMask == null || targetMask == null) return true;
+        // Fractions of the move, counted back from the end position, while the boxes overlap
+        float from = 0f, to = 1f;
+        if (dx == 0f) {
+            if (moving.x <= target.x - moving.width || moving.x >= target.x + target.width) return false;
+        } else {
+            float b1 = (moving.x - target.x + moving.width) / dx;
+            float b2 = (moving.x - target.x - target.width) / dx;
+            from = Math.max(from, Math.min(b1, b2));
+            to = Math.min(to, Math.max(b1, b2));
+        }
+        if (dy == 0f) {
+            if (moving.y <= target.y - moving.height || moving.y >= target.y + target.height) return false;
+        } else {
+            float b1 = (moving.y - target.y + moving.height) / dy;
+            float b2 = (moving.y - target.y - target.height) / dy;
+            from = Math.max(from, Math.min(b1, b2));
+            to = Math.min(to, Math.max(b1, b2));
+        }
+        if (from > to) return false;
+        // Masks have one bit per world unit
+        int steps = (int) Math.ceil(Math.max(Math.abs(dx), Math.abs(dy)) * (to - from));
+        for (int s = 0; s <= steps; s++) {
+            float back = steps == 0 ? from : from + (to - from) * s / steps;
+            float x = moving.x - dx * back;
+            float y = moving.y - dy * back;
+            if (x < target.x + target.width && x + moving.width > target.x &&
+                y < target.y + target.height && y + moving.height > target.y &&
+                CollisionMask.overlaps(movingMask, x, y, targetMask, target.x, target.y)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static class ChunkTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        Array<Rectangle> projectiles, invaders;
+        FloatArray velocityX, velocityY;
+        float delta;
+        CollisionMask projectileMask, invaderMask;
+        int start, end;
+        final IntArray pairProjectiles = new IntArray();
+        final IntArray pairInvaders = new IntArray();
+
+        @Override
+        protected void compute() {
+            pairProjectiles.clear();
+            pairInvaders.clear();
+            for (int i = end - 1; i >= start; i--) {
+                Rectangle projectile = projectiles.get(i);
+                float dx = velocityX.get(i) * delta;
+                float dy = velocityY.get(i) * delta;
+                for (int j = invaders.size - 1; j >= 0; j--) {
+                    Rectangle inv = invaders.get(j);
+                    if (sweptOverlaps(projectile, dx, dy, inv) &&
+                        pixelOverlaps(projectileMask, projectile, dx, dy, invaderMask, inv)) {
+                        pairProjectiles.add(i);
+                        pairInvaders.add(j);
+                    }
+                }
+            }
+        }
+    }
+}
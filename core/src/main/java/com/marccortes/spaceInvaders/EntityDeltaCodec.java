@@ -0,0 +1,153 @@
+package com.marccortes.spaceInvaders;
+
+import java.nio.ByteBuffer;
+
+// Encodes a sequence of EntityFrames as deltas, for replays and spectators.
+// Each entity is matched to one in the previous frame, in order, allowing entries that
+// disappeared in between to be skipped. A matched entity is predicted to keep moving as it
+// did last frame, and only the miss is written, as zigzag varints, so steady movement costs a
+// byte per axis. Unmatched entities are written in full. Every KEYFRAME_INTERVAL frames the
+// previous frame is dropped, so a viewer can start from there.
+//
+// One instance encodes or decodes a single stream; the two sides keep identical reference
+// state. Nothing is allocated per frame once the arrays have grown to the largest frame.
+class EntityDeltaCodec {
+    static final int KEYFRAME_INTERVAL = 300;
+    private static final int LOOKAHEAD = 8; // previous entries searched for a match
+    private static final int MATCH_TOLERANCE = 96; // largest prediction miss still sent as a delta
+    private static final int FLAG_NEW = 1, FLAG_KIND = 2, HEADER_FLAG_BITS = 2;
+    private static final int MAX_ENTITY_BYTES = 21; // header, two coordinates and a kind
+
+    private final EntityFrame reference = new EntityFrame();
+    private EntityFrame velocity = new EntityFrame(); // per reference entity, in x and y
+    private EntityFrame nextVelocity = new EntityFrame();
+    private int framesSinceKeyframe = KEYFRAME_INTERVAL;
+
+    void reset() {
+        framesSinceKeyframe = KEYFRAME_INTERVAL;
+    }
+
+    // Upper bound of an encoded frame, for sizing the output buffer
+    static int maxEncodedSize(EntityFrame frame) {
+        return 1 + 15 + EntityFrame.CATEGORY_COUNT * 5 + frame.totalCount() * MAX_ENTITY_BYTES;
+    }
+
+    void encode(EntityFrame frame, ByteBuffer out) {
+        boolean keyframe = startFrame();
+        out.put((byte) (keyframe ? 1 : 0));
+        Varint.write(out, frame.timeMillis);
+        Varint.write(out, frame.score);
+        Varint.write(out, frame.lives);
+        for (int c = 0; c < EntityFrame.CATEGORY_COUNT; c++) {
+            int count = frame.counts[c];
+            int previousCount = reference.counts[c];
+            int[] previousX = reference.x[c], previousY = reference.y[c], previousKind = reference.kind[c];
+            int[] velocityX = velocity.x[c], velocityY = velocity.y[c];
+            nextVelocity.ensureCapacity(c, count);
+            Varint.write(out, count);
+            int cursor = 0;
+            for (int i = 0; i < count; i++) {
+                int entityX = frame.x[c][i], entityY = frame.y[c][i], entityKind = frame.kind[c][i];
+                int match = -1;
+                for (int j = cursor; j < Math.min(previousCount, cursor + LOOKAHEAD); j++) {
+                    if (Math.abs(entityX - previousX[j] - velocityX[j]) <= MATCH_TOLERANCE &&
+                        Math.abs(entityY - previousY[j] - velocityY[j]) <= MATCH_TOLERANCE) {
+                        match = j;
+                        break;
+                    }
+                }
+                if (match < 0) {
+                    Varint.write(out, FLAG_NEW);
+                    Varint.write(out, zigzag(entityX));
+                    Varint.write(out, zigzag(entityY));
+                    Varint.write(out, entityKind);
+                    nextVelocity.x[c][i] = 0;
+                    nextVelocity.y[c][i] = 0;
+                } else {
+                    boolean kindChanged = entityKind != previousKind[match];
+                    Varint.write(out, (match - cursor) << HEADER_FLAG_BITS | (kindChanged ? FLAG_KIND : 0));
+                    Varint.write(out, zigzag(entityX - previousX[match] - velocityX[match]));
+                    Varint.write(out, zigzag(entityY - previousY[match] - velocityY[match]));
+                    if (kindChanged) Varint.write(out, entityKind);
+                    nextVelocity.x[c][i] = entityX - previousX[match];
+                    nextVelocity.y[c][i] = entityY - previousY[match];
+                    cursor = match + 1;
+                }
+            }
+            nextVelocity.counts[c] = count;
+        }
+        endFrame(frame);
+    }
+
+    // Reads one encoded frame into the given frame
+    void decode(ByteBuffer in, EntityFrame frame) {
+        boolean keyframe = in.get() != 0;
+        if (keyframe) reference.clear();
+        frame.timeMillis = Varint.read(in);
+        frame.score = Varint.read(in);
+        frame.lives = Varint.read(in);
+        for (int c = 0; c < EntityFrame.CATEGORY_COUNT; c++) {
+            int count = Varint.read(in);
+            int[] previousX = reference.x[c], previousY = reference.y[c], previousKind = reference.kind[c];
+            int[] velocityX = velocity.x[c], velocityY = velocity.y[c];
+            frame.ensureCapacity(c, count);
+            nextVelocity.ensureCapacity(c, count);
+            int cursor = 0;
+            for (int i = 0; i < count; i++) {
+                int header = Varint.read(in);
+                if ((header & FLAG_NEW) != 0) {
+                    int entityX = unzigzag(Varint.read(in));
+                    int entityY = unzigzag(Varint.read(in));
+                    frame.set(c, i, entityX, entityY, Varint.read(in));
+                    nextVelocity.x[c][i] = 0;
+                    nextVelocity.y[c][i] = 0;
+                } else {
+                    int match = cursor + (header >>> HEADER_FLAG_BITS);
+                    int entityX = previousX[match] + velocityX[match] + unzigzag(Varint.read(in));
+                    int entityY = previousY[match] + velocityY[match] + unzigzag(Varint.read(in));
+                    int entityKind = (header & FLAG_KIND) != 0 ? Varint.read(in) : previousKind[match];
+                    frame.set(c, i, entityX, entityY, entityKind);
+                    nextVelocity.x[c][i] = entityX - previousX[match];
+                    nextVelocity.y[c][i] = entityY - previousY[match];
+                    cursor = match + 1;
+                }
+            }
+            frame.counts[c] = count;
+            nextVelocity.counts[c] = count;
+        }
+        endFrame(frame);
+    }
+
+    private boolean startFrame() {
+        boolean keyframe = framesSinceKeyframe >= KEYFRAME_INTERVAL;
+        if (keyframe) {
+            reference.clear();
+            framesSinceKeyframe = 0;
+        }
+        framesSinceKeyframe++;
+        return keyframe;
+    }
+
+    // The frame just coded becomes the reference for the next one
+    private void endFrame(EntityFrame frame) {
+        for (int c = 0; c < EntityFrame.CATEGORY_COUNT; c++) {
+            int count = frame.counts[c];
+            reference.ensureCapacity(c, count);
+            System.arraycopy(frame.x[c], 0, reference.x[c], 0, count);
+            System.arraycopy(frame.y[c], 0, reference.y[c], 0, count);
+            System.arraycopy(frame.kind[c], 0, reference.kind[c], 0, count);
+            reference.counts[c] = count;
+        }
+        EntityFrame swap = velocity;
+        velocity = nextVelocity;
+        nextVelocity = swap;
+    }
+
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
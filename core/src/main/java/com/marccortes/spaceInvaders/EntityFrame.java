@@ -0,0 +1,47 @@
+package com.marccortes.spaceInvaders;
+
+import java.util.Arrays;
+
+// What is on screen at one moment: every visible entity as whole world units plus a small
+// per-entity kind (sprite variant, flags or animation frame), grouped by category.
+// The arrays only grow, so refilling a frame every tick does not allocate.
+class EntityFrame {
+    static final int SHIPS = 0, INVADERS = 1, BOSS = 2, PLAYER_SHOTS = 3, ENEMY_SHOTS = 4,
+        POWERUPS = 5, BLASTS = 6, CATEGORY_COUNT = 7;
+    private static final int INITIAL_CAPACITY = 32;
+
+    int timeMillis, score, lives;
+    final int[] counts = new int[CATEGORY_COUNT];
+    final int[][] x = new int[CATEGORY_COUNT][INITIAL_CAPACITY];
+    final int[][] y = new int[CATEGORY_COUNT][INITIAL_CAPACITY];
+    final int[][] kind = new int[CATEGORY_COUNT][INITIAL_CAPACITY];
+
+    void clear() {
+        for (int c = 0; c < CATEGORY_COUNT; c++) counts[c] = 0;
+    }
+
+    void add(int category, float entityX, float entityY, int entityKind) {
+        set(category, counts[category]++, Math.round(entityX), Math.round(entityY), entityKind);
+    }
+
+    void set(int category, int index, int entityX, int entityY, int entityKind) {
+        ensureCapacity(category, index + 1);
+        x[category][index] = entityX;
+        y[category][index] = entityY;
+        kind[category][index] = entityKind;
+    }
+
+    void ensureCapacity(int category, int capacity) {
+        if (x[category].length >= capacity) return;
+        int size = Math.max(capacity, x[category].length * 2);
+        x[category] = Arrays.copyOf(x[category], size);
+        y[category] = Arrays.copyOf(y[category], size);
+        kind[category] = Arrays.copyOf(kind[category], size);
+    }
+
+    int totalCount() {
+        int total = 0;
+        for (int c = 0; c < CATEGORY_COUNT; c++) total += counts[c];
+        return total;
+    }
+}
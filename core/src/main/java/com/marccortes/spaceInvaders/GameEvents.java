@@ -0,0 +1,74 @@
+package com.marccortes.spaceInvaders;
+
+// What happened during one simulation tick, as primitive records.
+// Collision code only posts events, so its loops do no audio, scoring or effect work; at the
+// end of the tick dispatch() hands every event to each consumer in turn, in subscription
+// order, and empties the buffer. The arrays are allocated once. Adding a consumer (telemetry,
+// achievements) costs nothing in the simulation itself.
+class GameEvents {
+    static final int INVADER_KILLED = 0; // at the invader's bottom center, value is the score
+    static final int BOSS_HIT = 1; // where the projectile struck
+    static final int BOSS_DESTROYED = 2; // at the boss's center, value is the score
+    static final int POWERUP_COLLECTED = 3; // value is 0 for multi-shot, 1 for shield
+    static final int LIFE_LOST = 4;
+    static final int PROJECTILE_FIRED = 5; // value is 0 for the players, 1 for enemies
+    static final int TYPE_COUNT = 6;
+    private static final int CAPACITY = 512; // more than a tick produces; a full buffer dispatches early
+    private static final int MAX_CONSUMERS = 8;
+
+    interface Consumer {
+        void onGameEvent(int type, float x, float y, int value);
+    }
+
+    private final int[] types = new int[CAPACITY];
+    private final float[] xs = new float[CAPACITY];
+    private final float[] ys = new float[CAPACITY];
+    private final int[] values = new int[CAPACITY];
+    private int count;
+    private final Consumer[] consumers = new Consumer[MAX_CONSUMERS];
+    private int consumerCount;
+    private boolean dispatching;
+
+    void subscribe(Consumer consumer) {
+        if (consumerCount == MAX_CONSUMERS) throw new IllegalStateException("Too many game event consumers");
+        consumers[consumerCount++] = consumer;
+    }
+
+    void post(int type, float x, float y, int value) {
+        if (count == CAPACITY) {
+            if (dispatching) throw new IllegalStateException("Game event buffer full while dispatching");
+            dispatch();
+        }
+        types[count] = type;
+        xs[count] = x;
+        ys[count] = y;
+        values[count] = value;
+        count++;
+    }
+
+    // Consumers may post follow-up events; those are dispatched in the same call
+    void dispatch() {
+        dispatching = true;
+        try {
+            int start = 0;
+            while (start < count) {
+                int end = count;
+                for (int c = 0; c < consumerCount; c++) {
+                    Consumer consumer = consumers[c];
+                    for (int i = start; i < end; i++) {
+                        consumer.onGameEvent(types[i], xs[i], ys[i], values[i]);
+                    }
+                }
+                start = end;
+            }
+        } finally {
+            count = 0;
+            dispatching = false;
+        }
+    }
+
+    // Drops pending events, when a match is restored or restarted mid-tick
+    void clear() {
+        count = 0;
+    }
+}
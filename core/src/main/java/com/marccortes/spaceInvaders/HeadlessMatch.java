@@ -0,0 +1,78 @@
+package com.marccortes.spaceInvaders;
+
+import com.badlogic.gdx.utils.Disposable;
+
+import java.nio.ByteBuffer;
+
+// One match under the normal game rules, without rendering, audio or input devices.
+// Advanced tick by tick with explicit inputs, so a server can host many of them and
+// check the results. Needs Gdx.app and Gdx.files (e.g. a HeadlessApplication) to load
+// the collision masks once.
+public class HeadlessMatch implements Disposable {
+    public static final float TICK_DURATION = RollbackSession.TICK_DURATION;
+    public static final float WORLD_WIDTH = MainGame.WORLD_WIDTH;
+
+    private static CollisionMask[] sharedMasks;
+
+    private final MainGame game = new MainGame(true);
+    private int tick;
+
+    public HeadlessMatch(long seed, boolean twoPlayers) {
+        this(seed, twoPlayers, false);
+    }
+
+    // An endless match keeps generating waves until the ships run out of lives
+    public HeadlessMatch(long seed, boolean twoPlayers, boolean endless) {
+        game.initializeHeadless(seed, twoPlayers, endless, masks(game));
+    }
+
+    private static synchronized CollisionMask[] masks(MainGame game) {
+        if (sharedMasks == null) sharedMasks = game.loadCollisionMasks();
+        return sharedMasks;
+    }
+
+    // Input of one ship for one tick: steer towards targetX, optionally firing
+    public static int encodeInput(float targetX, boolean firing) {
+        return MainGame.encodeInput(targetX, firing);
+    }
+
+    public void step(int input, int secondInput) {
+        game.stepHeadless(input, secondInput);
+        tick++;
+    }
+
+    // Writes the full match state, reusing the buffer when it is large enough; returned flipped
+    public ByteBuffer writeState(ByteBuffer reuse) {
+        return game.saveSnapshot(reuse);
+    }
+
+    public static boolean isValidState(ByteBuffer state) {
+        return MainGame.isSnapshot(state);
+    }
+
+    public int getTick() {
+        return tick;
+    }
+
+    public boolean isFinished() {
+        return game.isMatchOver();
+    }
+
+    public boolean isVictory() {
+        return game.isVictory();
+    }
+
+    public int getScore() {
+        return game.getScore();
+    }
+
+    // Current wave of an endless match; 0 otherwise
+    public int getWave() {
+        return game.getWave();
+    }
+
+    @Override
+    public void dispose() {
+        game.disposeHeadless();
+    }
+}
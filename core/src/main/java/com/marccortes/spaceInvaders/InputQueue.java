@@ -0,0 +1,147 @@
+package com.marccortes.spaceInvaders;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.InputProcessor;
+import com.badlogic.gdx.utils.TimeUtils;
+
+// Records touch and key events with the time they happened, for the game to consume in order.
+// Polling Gdx.input once per frame only sees the state at that moment, so a tap that starts
+// and ends between two frames is lost; the queue keeps every transition. Events live in a
+// fixed ring of primitive arrays, so recording does not allocate. It sits in front of the
+// stage and never consumes an event, so the UI still receives everything.
+//
+// Also keeps the input-to-spawn latency: the time from a fire press to its first projectile.
+class InputQueue implements InputProcessor {
+    static final int TOUCH_DOWN = 0, TOUCH_DRAGGED = 1, TOUCH_UP = 2, KEY_DOWN = 3, KEY_UP = 4;
+    private static final int CAPACITY = 256; // power of two; the oldest events are dropped when full
+    private static final int LATENCY_REPORT_INTERVAL = 20; // shots per logged latency summary
+
+    // Receives drained events; code is the pointer for touches and the keycode for keys
+    interface Handler {
+        void onInputEvent(int type, int code, int screenX, int screenY, long timeNanos);
+    }
+
+    private final int[] types = new int[CAPACITY];
+    private final int[] codes = new int[CAPACITY];
+    private final int[] screenXs = new int[CAPACITY];
+    private final int[] screenYs = new int[CAPACITY];
+    private final long[] times = new long[CAPACITY];
+    private int head, size;
+    private int droppedEvents;
+
+    // Input-to-spawn latency
+    private long latencySum, latencyMax, totalLatencySum;
+    private int latencyCount, totalLatencyCount;
+
+    // Hands all recorded events to the handler, oldest first
+    void drain(Handler handler) {
+        drain(Long.MAX_VALUE, handler);
+    }
+
+    // Hands the events recorded up to a TimeUtils.nanoTime() instant to the handler, oldest
+    // first; later ones stay queued for the next call
+    void drain(long untilNanos, Handler handler) {
+        while (size > 0 && times[head] <= untilNanos) {
+            int i = head;
+            head = (head + 1) & (CAPACITY - 1);
+            size--;
+            handler.onInputEvent(types[i], codes[i], screenXs[i], screenYs[i], times[i]);
+        }
+        if (droppedEvents > 0) {
+            Gdx.app.error("InputQueue", "Dropped " + droppedEvents + " input events, queue full");
+            droppedEvents = 0;
+        }
+    }
+
+    void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    void recordSpawnLatency(long nanos) {
+        latencySum += nanos;
+        latencyMax = Math.max(latencyMax, nanos);
+        latencyCount++;
+        totalLatencySum += nanos;
+        totalLatencyCount++;
+        if (latencyCount < LATENCY_REPORT_INTERVAL) return;
+        Gdx.app.log("InputQueue", "input-to-spawn over " + latencyCount + " shots: avg "
+            + latencySum / latencyCount / 1000 / 1000f + " ms, max " + latencyMax / 1000 / 1000f
+            + " ms, run avg " + getAverageLatencyMillis() + " ms");
+        latencySum = 0;
+        latencyMax = 0;
+        latencyCount = 0;
+    }
+
+    float getAverageLatencyMillis() {
+        return totalLatencyCount == 0 ? 0f : totalLatencySum / totalLatencyCount / 1000 / 1000f;
+    }
+
+    private void record(int type, int code, int screenX, int screenY) {
+        if (size == CAPACITY) {
+            head = (head + 1) & (CAPACITY - 1);
+            size--;
+            droppedEvents++;
+        }
+        int i = (head + size) & (CAPACITY - 1);
+        types[i] = type;
+        codes[i] = code;
+        screenXs[i] = screenX;
+        screenYs[i] = screenY;
+        // Backends report when the event happened; fall back to now where they do not
+        long time = Gdx.input.getCurrentEventTime();
+        times[i] = time != 0 ? time : TimeUtils.nanoTime();
+        size++;
+    }
+
+    @Override
+    public boolean touchDown(int screenX, int screenY, int pointer, int button) {
+        record(TOUCH_DOWN, pointer, screenX, screenY);
+        return false;
+    }
+
+    @Override
+    public boolean touchDragged(int screenX, int screenY, int pointer) {
+        record(TOUCH_DRAGGED, pointer, screenX, screenY);
+        return false;
+    }
+
+    @Override
+    public boolean touchUp(int screenX, int screenY, int pointer, int button) {
+        record(TOUCH_UP, pointer, screenX, screenY);
+        return false;
+    }
+
+    @Override
+    public boolean touchCancelled(int screenX, int screenY, int pointer, int button) {
+        record(TOUCH_UP, pointer, screenX, screenY);
+        return false;
+    }
+
+    @Override
+    public boolean keyDown(int keycode) {
+        record(KEY_DOWN, keycode, 0, 0);
+        return false;
+    }
+
+    @Override
+    public boolean keyUp(int keycode) {
+        record(KEY_UP, keycode, 0, 0);
+        return false;
+    }
+
+    @Override
+    public boolean keyTyped(char character) {
+        return false;
+    }
+
+    @Override
+    public boolean mouseMoved(int screenX, int screenY) {
+        return false;
+    }
+
+    @Override
+    public boolean scrolled(float amountX, float amountY) {
+        return false;
+    }
+}
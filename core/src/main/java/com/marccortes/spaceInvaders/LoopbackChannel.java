@@ -0,0 +1,55 @@
+package com.marccortes.spaceInvaders;
+
+import com.badlogic.gdx.utils.TimeUtils;
+
+// Stand-in for a network peer on the same device.
+// Each time the local side sends a tick, the remote player's input for that same tick is
+// sampled and held back for a fixed latency before it can be received, which exercises the
+// rollback path exactly like a real connection with that round trip would.
+class LoopbackChannel implements RollbackSession.Channel {
+    private static final int CAPACITY = 256;
+
+    interface RemoteSampler {
+        int sample();
+    }
+
+    private final RemoteSampler remote;
+    private final long latencyNanos;
+    private final int[] ticks = new int[CAPACITY];
+    private final int[] inputs = new int[CAPACITY];
+    private final long[] arrivals = new long[CAPACITY];
+    private int head, size;
+
+    LoopbackChannel(int latencyMillis, RemoteSampler remote) {
+        this.remote = remote;
+        this.latencyNanos = latencyMillis * 1000000L;
+    }
+
+    @Override
+    public void send(int tick, int input) {
+        if (size == CAPACITY) {
+            // Nobody is receiving; the oldest input is lost like a dropped packet
+            head = (head + 1) % CAPACITY;
+            size--;
+        }
+        int slot = (head + size) % CAPACITY;
+        ticks[slot] = tick;
+        inputs[slot] = remote.sample();
+        arrivals[slot] = TimeUtils.nanoTime() + latencyNanos;
+        size++;
+    }
+
+    @Override
+    public int receive(int[] tickOut, int[] inputOut) {
+        long now = TimeUtils.nanoTime();
+        int count = 0;
+        while (size > 0 && count < tickOut.length && arrivals[head] <= now) {
+            tickOut[count] = ticks[head];
+            inputOut[count] = inputs[head];
+            count++;
+            head = (head + 1) % CAPACITY;
+            size--;
+        }
+        return count;
+    }
+}
@@ -1,16 +1,25 @@
 package com.marccortes.spaceInvaders;
 
+import com.badlogic.gdx.Application;
 import com.badlogic.gdx.ApplicationAdapter;
 import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Input;
 import com.badlogic.gdx.InputMultiplexer;
 import com.badlogic.gdx.audio.Music;
 import com.badlogic.gdx.audio.Sound;
 import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Pixmap;
 import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.Animation;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.RandomXS128;
 import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.scenes.scene2d.Actor;
+import com.badlogic.gdx.scenes.scene2d.Group;
 import com.badlogic.gdx.scenes.scene2d.InputEvent;
 import com.badlogic.gdx.scenes.scene2d.Stage;
 import com.badlogic.gdx.scenes.scene2d.ui.Label;
@@ -20,14 +29,25 @@ import com.badlogic.gdx.scenes.scene2d.ui.Table;
 import com.badlogic.gdx.scenes.scene2d.ui.TextButton;
 import com.badlogic.gdx.scenes.scene2d.utils.ChangeListener;
 import com.badlogic.gdx.scenes.scene2d.utils.ClickListener;
+import com.badlogic.gdx.scenes.scene2d.utils.Drawable;
 import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.SnapshotArray;
+import com.badlogic.gdx.utils.TimeUtils;
+import com.badlogic.gdx.utils.viewport.FitViewport;
 import com.badlogic.gdx.utils.viewport.ScreenViewport;
 import com.badlogic.gdx.graphics.Color;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
 // Main game class for Space Invaders
 public class MainGame extends ApplicationAdapter {
     // Constants
     private static final int UI_FONT_SCALE = 6;
+    static final float WORLD_WIDTH = 1080;
+    static final float WORLD_HEIGHT = 1920;
     private static final float INVADER_SPEED_BOOST = 80;
     private static final float POWERUP_DROP_CHANCE = 0.06f;
     private static final float MULTI_SHOT_ACTIVE_TIME = 8f;
@@ -39,18 +59,78 @@ public class MainGame extends ApplicationAdapter {
     private static final int SCORE_PER_INVADER = 120;
     private static final int SCORE_PER_SHOOT_INVADER = 180;
     private static final int SCORE_PER_BOSS = 1200;
+    private static final int BUNKER_COUNT = 4;
+    private static final int[] FRAME_CAPS = { 30, 60, 120 };
+    private static final int SNAPSHOT_MAGIC = 0x53495353; // "SISS"
+    private static final short SNAPSHOT_VERSION = 4;
+    private static final String QUICK_SAVE_FILE = "quicksave.bin";
+    static final int REPLAY_MAGIC = 0x53495250; // "SIRP"
+    static final short REPLAY_VERSION = 1;
+    private static final String REPLAY_FILE = "last_replay.bin";
+    private static final int REPLAY_INITIAL_BYTES = 64 * 1024;
+    private static final int REPLAY_MAX_BYTES = 16 * 1024 * 1024; // recording stops there, about an hour of play
+    // Resource groups: the UI lives as long as the app, the menu backdrop only while a menu is shown
+    private static final String GROUP_UI = "ui", GROUP_AUDIO = "audio", GROUP_GAME = "game", GROUP_MENU = "menu";
+    private static final String MENU_BACKDROP_FILE = "backgrounds/menu_background.png";
+    private static final int VERSUS_LATENCY_MS = 150; // simulated round trip of the loopback peer
+    private static final float KEYBOARD_CURSOR_SPEED = 900; // world units per second while a steer key is held
+    // Per-tick ship input: bit 17 while the player steers, bit 16 while firing, the low bits the target x
+    private static final int INPUT_PRESENT = 1 << 17, INPUT_FIRING = 1 << 16, INPUT_X_MASK = 0xffff;
 
     // Game phases
     private enum GamePhase { MAIN_MENU, ACTIVE, PAUSED, SETTINGS, VICTORY, DEFEAT, FINAL_BOSS }
     private GamePhase currentPhase = GamePhase.MAIN_MENU;
+    // Simulation only: no UI, audio or textures, inputs are fed in by stepHeadless
+    private final boolean headless;
+
+    public MainGame() {
+        this(false);
+    }
+
+    MainGame(boolean headless) {
+        this.headless = headless;
+        // Stats before score, so a match ending in this tick records complete numbers
+        gameEvents.subscribe(this::countGameEvent);
+        gameEvents.subscribe(this::applyScoreEvent);
+        gameEvents.subscribe(this::spawnEventEffects);
+        gameEvents.subscribe(this::playEventSound);
+    }
+
+    // For tools driving the game from outside, like the soak test in the server module
+    public String getPhaseName() {
+        return currentPhase.name();
+    }
+
+    public void setInfiniteLives(boolean infiniteLives) {
+        this.infiniteLives = infiniteLives;
+    }
 
     // UI and rendering
     private Stage gameStage;
     private Skin uiSkin;
     private SpriteBatch spriteRenderer;
+    private ResolutionScaler resolutionScaler;
+
+    // Scene camera over a fixed virtual world; bounds are cached in resize()
+    private FitViewport sceneViewport;
+    private float worldWidth = WORLD_WIDTH, worldHeight = WORLD_HEIGHT;
+    private final Vector2 touchPoint = new Vector2();
+
+    // Cached UI screens, built once and swapped in by visibility
+    private Actor[] screens;
+    private Table mainMenuTable, pauseMenuTable, settingsTable, victoryTable, defeatTable;
+    private TextButton pauseButton, frameCapButton, bulletCapButton, cullPolicyButton, continueButton;
+    private Slider pauseMusicSlider, pauseSoundSlider, settingsMusicSlider, settingsSoundSlider;
+    private Label victoryScoreLabel, defeatScoreLabel, bestScoreLabel, topRunsLabel;
+    private Label scoreDisplay, livesDisplay, multiShotLabel, shieldLabel, bossHealthDisplay, waveDisplay;
+    private final com.badlogic.gdx.utils.StringBuilder labelText = new com.badlogic.gdx.utils.StringBuilder();
 
     // Assets
-    private Texture menuBackdrop, pauseScreen, spaceBackdrop;
+    private final StartupProfiler startupProfiler = new StartupProfiler();
+    private final ResourceRegistry resources = new ResourceRegistry(startupProfiler);
+    private Texture menuBackdrop, pauseScreen; // menuBackdrop is null while its group is unloaded or decoding
+    private ScrollingBackdrop spaceBackdrop;
+    private boolean pauseScreenOpaque;
     private Texture[] spaceshipTextures, invaderTextures, shootInvaderTextures, blastTextures;
     private Texture projectileTexture, powerupIcon, shieldIcon, bossSprite, laserTexture;
     private Animation<TextureRegion> spaceshipAnimation, invaderAnimation, shootInvaderAnimation, blastAnimation;
@@ -58,6 +138,8 @@ public class MainGame extends ApplicationAdapter {
     private Sound fireSound, lifeLostSound, invaderDestroyedSound, powerupCollectedSound, bossDamagedSound;
     private float musicLevel = 0.4f;
     private float soundLevel = 0.6f;
+    private int frameCapIndex = 1;
+    private long nextFrameNanos; // when the next capped play frame may start, on Android
 
     // Game objects
     private static class Spaceship {
@@ -67,8 +149,22 @@ public class MainGame extends ApplicationAdapter {
         float multiShotDuration = 0f;
         boolean isShieldActive = false;
         float shieldDuration = 0f;
+        float fireTimer = 0f;
     }
     private Spaceship spaceship = new Spaceship();
+    private Spaceship wingman = new Spaceship(); // second player in versus mode
+
+    // What one player is doing, built from queued input events. A press is latched until the
+    // ship actually fires, so a tap shorter than a frame, or during the cooldown, still shoots.
+    private static class Controls {
+        boolean touching, steerLeft, steerRight, fireHeld, firePending;
+        float targetX; // world x the ship centers under
+        long pressNanos; // when the pending press happened, for the latency metric
+    }
+    private final Controls playerControls = new Controls();
+    private final Controls wingmanControls = new Controls();
+    private final InputQueue inputQueue = new InputQueue();
+    private final InputQueue.Handler inputEventHandler = this::handleInputEvent;
 
     private static class Invader {
         Array<Rectangle> rectangles;
@@ -81,10 +177,29 @@ public class MainGame extends ApplicationAdapter {
         float fireTimer = 0f;
         final float fireDelay = 0.75f; // Matches shoot_enemy animation (0.75s per frame)
 
+        private final Array<Rectangle> spare = new Array<>(); // removed rectangles, reused by add
+
         Invader() {
             rectangles = new Array<>();
             isShootEnemy = new Array<>();
         }
+
+        void add(float x, float y, boolean shooter) {
+            Rectangle rectangle = spare.size > 0 ? spare.pop() : new Rectangle();
+            rectangles.add(rectangle.set(x, y, width, height));
+            isShootEnemy.add(shooter);
+        }
+
+        void remove(int i) {
+            spare.add(rectangles.removeIndex(i));
+            isShootEnemy.removeIndex(i);
+        }
+
+        void clear() {
+            spare.addAll(rectangles);
+            rectangles.clear();
+            isShootEnemy.clear();
+        }
     }
     private Invader invader = new Invader(); // Initialize to prevent uninitialized variable error
 
@@ -101,17 +216,46 @@ public class MainGame extends ApplicationAdapter {
         final float laserDelay = 3f;
         final float laserDuration = 0.5f;
         float laserWidth = 20, laserHeight = 600;
+        // Bullet pattern progress: index into the current schedule, volleys fired, time to the next one
+        int patternIndex, patternVolley;
+        float patternTimer;
     }
     private Boss boss = new Boss();
 
     private static class Projectile {
         Array<Rectangle> rectangles = new Array<>();
-        Array<Float> velocityX = new Array<>();
-        Array<Float> velocityY = new Array<>();
+        FloatArray velocityX = new FloatArray();
+        FloatArray velocityY = new FloatArray();
         float width = 35, height = 30;
         float speed = 650;
         float fireDelay = 0.2f;
-        float fireTimer = 0f;
+        private final Array<Rectangle> spare = new Array<>(); // removed rectangles, reused by add
+
+        void add(float x, float y, float vx, float vy) {
+            Rectangle rectangle = spare.size > 0 ? spare.pop() : new Rectangle();
+            rectangles.add(rectangle.set(x, y, width, height));
+            velocityX.add(vx);
+            velocityY.add(vy);
+        }
+
+        void remove(int i) {
+            spare.add(rectangles.removeIndex(i));
+            velocityX.removeIndex(i);
+            velocityY.removeIndex(i);
+        }
+
+        void clear() {
+            spare.addAll(rectangles);
+            rectangles.clear();
+            velocityX.clear();
+            velocityY.clear();
+        }
+
+        void ensureCapacity(int additional) {
+            rectangles.ensureCapacity(additional);
+            velocityX.ensureCapacity(additional);
+            velocityY.ensureCapacity(additional);
+        }
     }
     private Projectile playerProjectiles = new Projectile();
     private Projectile enemyProjectiles = new Projectile();
@@ -133,24 +277,112 @@ public class MainGame extends ApplicationAdapter {
         }
     }
     private Array<Explosion> blasts = new Array<>();
+    private final Array<Explosion> spareBlasts = new Array<>(); // finished blasts, reused by spawnBlast
     private float blastWidth = 150, blastHeight = 150;
 
+    // Collisions post events; score, effects, audio and stats consume them once per tick
+    private final GameEvents gameEvents = new GameEvents();
+    private final int[] matchEventCounts = new int[GameEvents.TYPE_COUNT];
+
+    private final ProjectileBudget projectileBudget = new ProjectileBudget();
+
+    private final CollisionResolver collisionResolver = new CollisionResolver();
+    private CollisionMask spaceshipMask, invaderMask, bossMask, projectileMask;
+    private final Array<Bunker> bunkers = new Array<>();
+
     // Game state
     private float animationTime = 0f;
     private float gameTime = 0f;
-    private float backdropYPosition = 0;
     private float backdropScrollSpeed = 60;
     private int playerScore = 0;
     private int playerLives = STARTING_LIVES;
+    // Hits still happen and raise their events, but cost no life; only set by tools
+    private boolean infiniteLives;
+    private int invadersKilled = 0;
+    private float bossFightTime = 0f;
+
+    // Persistent run statistics
+    private RunHistory runHistory;
+
+    // Single source of randomness, so snapshots can capture and restore it
+    private final RandomXS128 random = new RandomXS128();
+    private ByteBuffer snapshotBuffer;
+
+    // What was on screen each frame, delta encoded, for replay export and spectators
+    private final EntityFrame replayFrame = new EntityFrame();
+    private final EntityDeltaCodec replayCodec = new EntityDeltaCodec();
+    private ByteBuffer replayScratch = ByteBuffer.allocate(4096);
+    private ByteBuffer replayStream = ByteBuffer.allocate(REPLAY_INITIAL_BYTES);
+    // Hash of each recorded frame, only while replays are checked
+    private IntArray replayHashes = Boolean.getBoolean(ReplayCheck.PROPERTY) ? new IntArray() : null;
+
+    // Local versus mode: the second ship is driven through a rollback session
+    private boolean versusMode;
+    // Endless mode: generated waves, with a boss every few, until the player runs out of lives
+    private boolean endlessMode;
+    private long waveSeed;
+    private int waveNumber;
+    private final WaveGenerator waveGenerator = new WaveGenerator();
+    private RollbackSession versusSession;
+    private boolean resimulating;
+    private final RollbackSession.Simulation versusSimulation = new RollbackSession.Simulation() {
+        @Override
+        public int sampleLocalInput(long tickEndNanos) {
+            return samplePlayerInput(tickEndNanos);
+        }
+
+        @Override
+        public ByteBuffer save(ByteBuffer reuse) {
+            return saveSnapshot(reuse);
+        }
+
+        @Override
+        public void restore(ByteBuffer snapshot) {
+            snapshot.rewind();
+            restoreSnapshot(snapshot);
+            currentPhase = boss.rectangle != null ? GamePhase.FINAL_BOSS : GamePhase.ACTIVE;
+        }
+
+        @Override
+        public void step(int localInput, int remoteInput, boolean replay) {
+            // A finished match stays finished, even if a late input would have changed the outcome
+            if (currentPhase != GamePhase.ACTIVE && currentPhase != GamePhase.FINAL_BOSS) return;
+            resimulating = replay;
+            applyInput(spaceship, localInput);
+            applyInput(wingman, remoteInput);
+            updateGame(RollbackSession.TICK_DURATION);
+            resimulating = false;
+        }
+    };
 
     @Override
     public void create() {
         Gdx.app.log("MainGame", "Creating game");
         try {
+            int create = startupProfiler.begin("create");
+            int phase = startupProfiler.begin("initializeUI");
             initializeUI();
+            startupProfiler.end(phase);
+            phase = startupProfiler.begin("loadAssets");
             loadAssets();
+            startupProfiler.end(phase);
+            phase = startupProfiler.begin("buildScreens");
+            buildScreens();
+            startupProfiler.end(phase);
+            phase = startupProfiler.begin("runHistory");
+            runHistory = new RunHistory(history -> {
+                setLabelText(bestScoreLabel, "Best: ", history.getBestScore());
+                setTopRunsText(history.getTopRuns());
+                Gdx.graphics.requestRendering();
+            });
+            startupProfiler.end(phase);
+            phase = startupProfiler.begin("setupInput");
             setupInput();
+            startupProfiler.end(phase);
+            phase = startupProfiler.begin("displayMainMenu");
             displayMainMenu();
+            startupProfiler.end(phase);
+            startupProfiler.end(create);
         } catch (Exception e) {
             Gdx.app.error("MainGame", "Error in create: " + e.getMessage(), e);
             throw e;
@@ -160,9 +392,16 @@ public class MainGame extends ApplicationAdapter {
     private void initializeUI() {
         Gdx.app.log("MainGame", "Initializing UI");
         try {
-            gameStage = new Stage(new ScreenViewport());
-            uiSkin = new Skin(Gdx.files.internal("uiskin.json"));
-            spriteRenderer = new SpriteBatch();
+            gameStage = resources.track(GROUP_UI, "stage", new Stage(new ScreenViewport()));
+            sceneViewport = new FitViewport(WORLD_WIDTH, WORLD_HEIGHT);
+            sceneViewport.update(Gdx.graphics.getWidth(), Gdx.graphics.getHeight(), true);
+            int span = startupProfiler.begin("uiskin.json");
+            uiSkin = resources.track(GROUP_UI, "uiskin.json", new Skin(Gdx.files.internal("uiskin.json")));
+            startupProfiler.end(span);
+            span = startupProfiler.begin("spriteRenderer");
+            spriteRenderer = resources.track(GROUP_UI, "spriteRenderer", new SpriteBatch());
+            startupProfiler.end(span);
+            resolutionScaler = resources.track(GROUP_UI, "resolutionScaler", new ResolutionScaler(FRAME_CAPS[frameCapIndex]));
         } catch (Exception e) {
             Gdx.app.error("MainGame", "Error initializing UI: " + e.getMessage(), e);
             throw e;
@@ -173,13 +412,13 @@ public class MainGame extends ApplicationAdapter {
         Gdx.app.log("MainGame", "Loading assets");
         try {
             // Audio
-            menuTrack = Gdx.audio.newMusic(Gdx.files.internal("audio/menu_music.mp3"));
-            gameTrack = Gdx.audio.newMusic(Gdx.files.internal("audio/game_music.mp3"));
-            fireSound = Gdx.audio.newSound(Gdx.files.internal("audio/shoot.wav"));
-            lifeLostSound = Gdx.audio.newSound(Gdx.files.internal("audio/life_lost.wav"));
-            invaderDestroyedSound = Gdx.audio.newSound(Gdx.files.internal("audio/enemy_killed.wav"));
-            powerupCollectedSound = Gdx.audio.newSound(Gdx.files.internal("audio/powerup.wav"));
-            bossDamagedSound = Gdx.audio.newSound(Gdx.files.internal("audio/enemy_killed.wav"));
+            menuTrack = resources.music(GROUP_AUDIO, "audio/menu_music.mp3");
+            gameTrack = resources.music(GROUP_AUDIO, "audio/game_music.mp3");
+            fireSound = resources.sound(GROUP_AUDIO, "audio/shoot.wav");
+            lifeLostSound = resources.sound(GROUP_AUDIO, "audio/life_lost.wav");
+            invaderDestroyedSound = resources.sound(GROUP_AUDIO, "audio/enemy_killed.wav");
+            powerupCollectedSound = resources.sound(GROUP_AUDIO, "audio/powerup.wav");
+            bossDamagedSound = resources.sound(GROUP_AUDIO, "audio/enemy_killed.wav"); // same handle as above
             if (menuTrack == null || gameTrack == null || fireSound == null || lifeLostSound == null ||
                 invaderDestroyedSound == null || powerupCollectedSound == null || bossDamagedSound == null) {
                 throw new RuntimeException("Failed to load audio assets");
@@ -190,47 +429,53 @@ public class MainGame extends ApplicationAdapter {
             gameTrack.setVolume(musicLevel);
 
             // Backgrounds
-            menuBackdrop = new Texture("backgrounds/menu_background.png");
-            pauseScreen = new Texture("backgrounds/pause_overlay.png");
-            spaceBackdrop = new Texture("backgrounds/game_background.png");
+            menuBackdrop = resources.texture(GROUP_MENU, MENU_BACKDROP_FILE);
+            pauseScreen = resources.texture(GROUP_GAME, "backgrounds/pause_overlay.png");
+            int span = startupProfiler.begin("pause overlay opacity");
+            pauseScreenOpaque = isOpaque("backgrounds/pause_overlay.png");
+            startupProfiler.end(span);
+            span = startupProfiler.begin("backgrounds/game_background.png");
+            spaceBackdrop = resources.track(GROUP_GAME, "spaceBackdrop", new ScrollingBackdrop());
+            spaceBackdrop.addLayer("backgrounds/game_background.png", 1f, 1f);
+            startupProfiler.end(span);
             if (menuBackdrop == null || pauseScreen == null || spaceBackdrop == null) {
                 throw new RuntimeException("Failed to load background textures");
             }
 
             // Sprites
             spaceshipTextures = new Texture[3];
-            spaceshipTextures[0] = new Texture("sprites/player/00_player.png");
-            spaceshipTextures[1] = new Texture("sprites/player/01_player.png");
-            spaceshipTextures[2] = new Texture("sprites/player/02_player.png");
+            spaceshipTextures[0] = resources.texture(GROUP_GAME, "sprites/player/00_player.png");
+            spaceshipTextures[1] = resources.texture(GROUP_GAME, "sprites/player/01_player.png");
+            spaceshipTextures[2] = resources.texture(GROUP_GAME, "sprites/player/02_player.png");
             for (Texture tex : spaceshipTextures) {
                 if (tex == null) throw new RuntimeException("Failed to load spaceship textures");
             }
 
             invaderTextures = new Texture[2];
-            invaderTextures[0] = new Texture("sprites/enemy/00_enemy.png");
-            invaderTextures[1] = new Texture("sprites/enemy/01_enemy.png");
+            invaderTextures[0] = resources.texture(GROUP_GAME, "sprites/enemy/00_enemy.png");
+            invaderTextures[1] = resources.texture(GROUP_GAME, "sprites/enemy/01_enemy.png");
             for (Texture tex : invaderTextures) {
                 if (tex == null) throw new RuntimeException("Failed to load invader textures");
             }
 
             shootInvaderTextures = new Texture[2];
-            shootInvaderTextures[0] = new Texture("sprites/enemy/00_shoot_enemy.png");
-            shootInvaderTextures[1] = new Texture("sprites/enemy/01_shoot_enemy.png");
+            shootInvaderTextures[0] = resources.texture(GROUP_GAME, "sprites/enemy/00_shoot_enemy.png");
+            shootInvaderTextures[1] = resources.texture(GROUP_GAME, "sprites/enemy/01_shoot_enemy.png");
             for (Texture tex : shootInvaderTextures) {
                 if (tex == null) throw new RuntimeException("Failed to load shoot invader textures");
             }
 
             blastTextures = new Texture[8];
             for (int i = 0; i < 8; i++) {
-                blastTextures[i] = new Texture(String.format("sprites/vfx/%02d_explosion.png", i));
+                blastTextures[i] = resources.texture(GROUP_GAME, String.format("sprites/vfx/%02d_explosion.png", i));
                 if (blastTextures[i] == null) throw new RuntimeException("Failed to load blast texture " + i);
             }
 
-            projectileTexture = new Texture("sprites/player/bullet.png");
-            powerupIcon = new Texture("sprites/powerup/triple_shot.png");
-            shieldIcon = new Texture("sprites/powerup/shield_powerup.png");
-            bossSprite = new Texture("sprites/enemy/boss.png");
-            laserTexture = new Texture("sprites/enemy/laser.png");
+            projectileTexture = resources.texture(GROUP_GAME, "sprites/player/bullet.png");
+            powerupIcon = resources.texture(GROUP_GAME, "sprites/powerup/triple_shot.png");
+            shieldIcon = resources.texture(GROUP_GAME, "sprites/powerup/shield_powerup.png");
+            bossSprite = resources.texture(GROUP_GAME, "sprites/enemy/boss.png");
+            laserTexture = resources.texture(GROUP_GAME, "sprites/enemy/laser.png");
             if (projectileTexture == null || powerupIcon == null || shieldIcon == null ||
                 bossSprite == null || laserTexture == null) {
                 throw new RuntimeException("Failed to load sprite textures");
@@ -252,17 +497,125 @@ public class MainGame extends ApplicationAdapter {
             if (spaceshipAnimation == null || invaderAnimation == null || shootInvaderAnimation == null || blastAnimation == null) {
                 throw new RuntimeException("Failed to create animations");
             }
+
+            // Collision masks and bunkers
+            span = startupProfiler.begin("collision masks");
+            setCollisionMasks(loadCollisionMasks());
+            startupProfiler.end(span);
+            for (int i = 0; i < BUNKER_COUNT; i++) {
+                bunkers.add(resources.track(GROUP_GAME, "bunker" + i, new Bunker(0, 0)));
+            }
+            resources.logSummary();
         } catch (Exception e) {
             Gdx.app.error("MainGame", "Error loading assets: " + e.getMessage(), e);
             throw e;
         }
     }
 
+    // The menu backdrop is only drawn behind menus, so its texture is dropped during play.
+    // Back in a menu it is decoded off the render thread, and drawn from the frame it is ready.
+    private void setMenuBackdropLoaded(boolean loaded) {
+        if (loaded == (menuBackdrop != null)) return;
+        if (loaded) {
+            menuBackdrop = resources.textureAsync(GROUP_MENU, MENU_BACKDROP_FILE);
+        } else {
+            resources.unloadGroup(GROUP_MENU);
+            menuBackdrop = null;
+        }
+    }
+
+    // Collision masks, sampled at the size each sprite is drawn. They are never written after
+    // loading, so headless matches share one set.
+    CollisionMask[] loadCollisionMasks() {
+        return new CollisionMask[] {
+            CollisionMask.fromFiles((int) spaceship.width, (int) spaceship.height,
+                "sprites/player/00_player.png", "sprites/player/01_player.png", "sprites/player/02_player.png"),
+            CollisionMask.fromFiles((int) invader.width, (int) invader.height,
+                "sprites/enemy/00_enemy.png", "sprites/enemy/01_enemy.png",
+                "sprites/enemy/00_shoot_enemy.png", "sprites/enemy/01_shoot_enemy.png"),
+            CollisionMask.fromFiles((int) boss.width, (int) boss.height, "sprites/enemy/boss.png"),
+            CollisionMask.fromFiles((int) playerProjectiles.width, (int) playerProjectiles.height,
+                "sprites/player/bullet.png")
+        };
+    }
+
+    private void setCollisionMasks(CollisionMask[] masks) {
+        spaceshipMask = masks[0];
+        invaderMask = masks[1];
+        bossMask = masks[2];
+        projectileMask = masks[3];
+        collisionResolver.setMasks(projectileMask, invaderMask);
+    }
+
+    // Sets up a simulation-only match in the fixed world; the caller owns the shared masks
+    void initializeHeadless(long seed, boolean twoPlayers, boolean endless, CollisionMask[] masks) {
+        worldWidth = WORLD_WIDTH;
+        worldHeight = WORLD_HEIGHT;
+        setCollisionMasks(masks);
+        for (int i = 0; i < BUNKER_COUNT; i++) {
+            bunkers.add(new Bunker(0, 0));
+        }
+        random.setSeed(seed);
+        versusMode = twoPlayers;
+        endlessMode = endless;
+        currentPhase = GamePhase.ACTIVE;
+        initializeGame();
+    }
+
+    // Advances a headless match by one fixed tick
+    void stepHeadless(int input, int secondInput) {
+        if (currentPhase != GamePhase.ACTIVE && currentPhase != GamePhase.FINAL_BOSS) return;
+        applyInput(spaceship, input);
+        if (versusMode) applyInput(wingman, secondInput);
+        updateGame(RollbackSession.TICK_DURATION);
+    }
+
+    int getWave() {
+        return waveNumber;
+    }
+
+    boolean isMatchOver() {
+        return currentPhase == GamePhase.VICTORY || currentPhase == GamePhase.DEFEAT;
+    }
+
+    boolean isVictory() {
+        return currentPhase == GamePhase.VICTORY;
+    }
+
+    int getScore() {
+        return playerScore;
+    }
+
+    void disposeHeadless() {
+        for (Bunker bunker : bunkers) bunker.dispose();
+        bunkers.clear();
+    }
+
+    // Whether every pixel of an image is fully opaque; decides if the scene under it can be skipped
+    private boolean isOpaque(String path) {
+        Pixmap pixmap = new Pixmap(Gdx.files.internal(path));
+        try {
+            for (int y = 0; y < pixmap.getHeight(); y++) {
+                for (int x = 0; x < pixmap.getWidth(); x++) {
+                    if ((pixmap.getPixel(x, y) & 0xff) != 0xff) return false;
+                }
+            }
+            return true;
+        } finally {
+            pixmap.dispose();
+        }
+    }
+
     private void setupInput() {
         Gdx.app.log("MainGame", "Setting up input");
         try {
+            // The queue goes first and lets every event through to the stage
             InputMultiplexer inputHandler = new InputMultiplexer();
+            inputHandler.addProcessor(inputQueue);
             inputHandler.addProcessor(gameStage);
+            inputQueue.clear();
+            releaseControls(playerControls);
+            releaseControls(wingmanControls);
             Gdx.input.setInputProcessor(inputHandler);
         } catch (Exception e) {
             Gdx.app.error("MainGame", "Error setting up input: " + e.getMessage(), e);
@@ -279,76 +632,127 @@ public class MainGame extends ApplicationAdapter {
             invader.moveSpeed = 180;
             animationTime = 0f;
             gameTime = 0f;
-            spaceship.isFiring = false;
-            spaceship.multiShotActive = false;
-            spaceship.multiShotDuration = 0f;
-            spaceship.isShieldActive = false;
-            spaceship.shieldDuration = 0f;
+            invadersKilled = 0;
+            bossFightTime = 0f;
+            startReplay();
+            gameEvents.clear();
+            Arrays.fill(matchEventCounts, 0);
+            resetShip(spaceship);
+            resetShip(wingman);
             boss.rectangle = null;
             boss.healthPoints = MAX_BOSS_HEALTH;
             boss.damageTimer = 0f;
+            resetBossPatterns();
             boss.damageEffect = false;
             invader.fireTimer = 0f;
             blasts.clear();
             powerup.rectangles.clear();
-            playerProjectiles.rectangles.clear();
-            playerProjectiles.velocityX.clear();
-            playerProjectiles.velocityY.clear();
-            enemyProjectiles.rectangles.clear();
-            enemyProjectiles.velocityX.clear();
-            enemyProjectiles.velocityY.clear();
+            playerProjectiles.clear();
+            enemyProjectiles.clear();
 
             // Initialize spaceship
             Gdx.app.log("MainGame", "Setting up spaceship");
-            spaceship.x = (Gdx.graphics.getWidth() - spaceship.width) / 2f;
-            spaceship.y = Gdx.graphics.getHeight() * -0.03f;
+            spaceship.x = (worldWidth - spaceship.width) / 2f;
+            spaceship.y = worldHeight * -0.03f;
+            if (versusMode) {
+                // Side by side, a third of the way in from each edge
+                spaceship.x = worldWidth / 3f - spaceship.width / 2f;
+                wingman.x = worldWidth * 2f / 3f - wingman.width / 2f;
+                wingman.y = spaceship.y;
+            }
+            resetControls(playerControls, spaceship);
+            resetControls(wingmanControls, wingman);
+
+            // Initialize bunkers
+            float bunkerGap = (worldWidth - BUNKER_COUNT * Bunker.CELLS_X * Bunker.CELL_SIZE) / (BUNKER_COUNT + 1);
+            for (int i = 0; i < bunkers.size; i++) {
+                Bunker bunker = bunkers.get(i);
+                bunker.bounds.x = bunkerGap + i * (bunker.bounds.width + bunkerGap);
+                bunker.bounds.y = spaceship.y + spaceship.height + 40;
+                bunker.reset();
+            }
 
             // Initialize invaders
             Gdx.app.log("MainGame", "Setting up invaders");
-            invader.startY = Gdx.graphics.getHeight() - 150;
-            invader.rectangles.clear();
-            invader.isShootEnemy.clear();
-            int totalInvaders = 28;
+            invader.startY = worldHeight - 150;
+            invader.clear();
+            if (endlessMode) {
+                waveSeed = random.nextLong();
+                waveNumber = 1;
+                spawnWave();
+            }
+            int totalInvaders = endlessMode ? 0 : 28;
             int invadersPerRow = 7;
             int spacing = 60;
             int rows = (int) Math.ceil((float) totalInvaders / invadersPerRow);
             for (int row = 0; row < rows; row++) {
                 int invadersInThisRow = Math.min(invadersPerRow, totalInvaders - row * invadersPerRow);
                 float totalRowWidth = invadersInThisRow * invader.width + (invadersInThisRow - 1) * spacing;
-                float startX = (Gdx.graphics.getWidth() - totalRowWidth) / 2f;
+                float startX = (worldWidth - totalRowWidth) / 2f;
                 float y = invader.startY - row * (invader.height + spacing);
                 for (int col = 0; col < invadersInThisRow; col++) {
-                    Rectangle rect = new Rectangle(startX + col * (invader.width + spacing), y, invader.width, invader.height);
-                    invader.rectangles.add(rect);
-                    invader.isShootEnemy.add(Math.random() < 0.2); // 20% chance to be shoot_enemy
+                    invader.add(startX + col * (invader.width + spacing), y, random.nextFloat() < 0.2f); // 20% chance to be shoot_enemy
                 }
             }
             Gdx.app.log("MainGame", "Invaders initialized: " + invader.rectangles.size);
 
             // Setup UI
-            Gdx.app.log("MainGame", "Setting up UI");
-            gameStage.clear();
-            createPauseButton();
-            menuTrack.stop();
-            gameTrack.play();
+            if (!headless) {
+                Gdx.app.log("MainGame", "Setting up UI");
+                showScreen(pauseButton);
+                setupInput();
+                menuTrack.stop();
+                gameTrack.play();
+            }
         } catch (Exception e) {
             Gdx.app.error("MainGame", "Error initializing game: " + e.getMessage(), e);
             throw e;
         }
     }
 
+    // Replaces the formation with the current wave's layout, reusing the invader storage
+    private void spawnWave() {
+        waveGenerator.generate(waveSeed, waveNumber);
+        invader.clear();
+        int spacing = 60;
+        float totalRowWidth = waveGenerator.columns * invader.width + (waveGenerator.columns - 1) * spacing;
+        float startX = (worldWidth - totalRowWidth) / 2f;
+        for (int row = 0; row < waveGenerator.rows; row++) {
+            float y = invader.startY - row * (invader.height + spacing);
+            for (int col = 0; col < waveGenerator.columns; col++) {
+                if (waveGenerator.isOccupied(row, col)) {
+                    invader.add(startX + col * (invader.width + spacing), y, waveGenerator.isShooter(row, col));
+                }
+            }
+        }
+        invader.moveSpeed = waveGenerator.moveSpeed;
+        invader.moveDirection = 1;
+        invader.fireTimer = 0f;
+        Gdx.app.log("MainGame", "Wave " + waveNumber + ": " + waveGenerator.getShapeName() + ", " + invader.rectangles.size + " invaders");
+    }
+
+    private void advanceWave() {
+        waveNumber++;
+        if (WaveGenerator.isBossWave(waveNumber)) {
+            spawnFinalBoss();
+        } else {
+            spawnWave();
+        }
+    }
+
     private void spawnFinalBoss() {
         Gdx.app.log("MainGame", "Spawning final boss");
         try {
             boss.rectangle = new Rectangle(
-                (Gdx.graphics.getWidth() - boss.width) / 2f,
-                Gdx.graphics.getHeight() - boss.height - 60,
+                (worldWidth - boss.width) / 2f,
+                worldHeight - boss.height - 60,
                 boss.width,
                 boss.height
             );
             boss.healthPoints = MAX_BOSS_HEALTH;
             boss.moveDirection = 1;
             boss.damageTimer = 0f;
+            resetBossPatterns();
             boss.damageEffect = false;
             currentPhase = GamePhase.FINAL_BOSS;
         } catch (Exception e) {
@@ -357,51 +761,170 @@ public class MainGame extends ApplicationAdapter {
         }
     }
 
-    private void updateSpaceshipPosition() {
+    private void updateSpaceshipPosition(float delta) {
         try {
-            if (Gdx.input.isTouched()) {
-                Gdx.app.log("MainGame", "Touch detected at x: " + Gdx.input.getX());
-                spaceship.x = Gdx.input.getX() - spaceship.width / 2f;
-                spaceship.x = Math.max(0, Math.min(spaceship.x, Gdx.graphics.getWidth() - spaceship.width));
-                spaceship.isFiring = true;
-            } else {
-                spaceship.isFiring = false;
-            }
+            inputQueue.drain(inputEventHandler);
+            applyInput(spaceship, sampleControls(playerControls, delta));
         } catch (Exception e) {
             Gdx.app.error("MainGame", "Error updating spaceship position: " + e.getMessage(), e);
         }
     }
 
-    private void firePlayerProjectiles(float delta) {
+    // Versus mode samples both players once per fixed tick. A frame may run several ticks, so
+    // each one only applies the events that happened before it ended; the wingman is sampled
+    // right after the player for the same tick, once those events are applied.
+    private int samplePlayerInput(long tickEndNanos) {
+        inputQueue.drain(tickEndNanos, inputEventHandler);
+        return sampleControls(playerControls, RollbackSession.TICK_DURATION);
+    }
+
+    private int sampleWingmanInput() {
+        return sampleControls(wingmanControls, RollbackSession.TICK_DURATION);
+    }
+
+    // Turns a player's controls, with the queued events applied, into a tick input. Steering
+    // without firing is possible from the keyboard; no input at all leaves the ship in place.
+    private int sampleControls(Controls controls, float step) {
+        if (controls.steerLeft) controls.targetX -= KEYBOARD_CURSOR_SPEED * step;
+        if (controls.steerRight) controls.targetX += KEYBOARD_CURSOR_SPEED * step;
+        controls.targetX = MathUtils.clamp(controls.targetX, 0f, worldWidth);
+        boolean firing = controls.touching || controls.fireHeld || controls.firePending;
+        if (!firing && !controls.steerLeft && !controls.steerRight) return 0;
+        return encodeInput(controls.targetX, firing);
+    }
+
+    // Touch steers and fires: the first finger is the player, in versus mode the second one is
+    // the wingman. On a keyboard the player uses the arrows and space, the wingman A/D and W;
+    // alone the player may use either. D-pad and A button keys, as gamepads report them on
+    // Android, count as the player's arrows and fire.
+    private void handleInputEvent(int type, int code, int screenX, int screenY, long timeNanos) {
+        Controls controls;
+        boolean down = type == InputQueue.KEY_DOWN;
+        if (type == InputQueue.KEY_DOWN || type == InputQueue.KEY_UP) {
+            switch (code) {
+                case Input.Keys.LEFT: // also the d-pad
+                    playerControls.steerLeft = down;
+                    return;
+                case Input.Keys.RIGHT:
+                    playerControls.steerRight = down;
+                    return;
+                case Input.Keys.SPACE: case Input.Keys.UP:
+                case Input.Keys.DPAD_CENTER: case Input.Keys.BUTTON_A:
+                    setFireHeld(playerControls, down, timeNanos);
+                    return;
+                case Input.Keys.A:
+                    (versusMode ? wingmanControls : playerControls).steerLeft = down;
+                    return;
+                case Input.Keys.D:
+                    (versusMode ? wingmanControls : playerControls).steerRight = down;
+                    return;
+                case Input.Keys.W:
+                    setFireHeld(versusMode ? wingmanControls : playerControls, down, timeNanos);
+                    return;
+                default:
+                    return;
+            }
+        }
+        if (code == 0) {
+            controls = playerControls;
+        } else if (code == 1 && versusMode) {
+            controls = wingmanControls;
+        } else {
+            return;
+        }
+        sceneViewport.unproject(touchPoint.set(screenX, screenY));
+        controls.targetX = touchPoint.x;
+        if (type == InputQueue.TOUCH_DOWN) {
+            controls.touching = true;
+            latchPress(controls, timeNanos);
+        } else if (type == InputQueue.TOUCH_UP) {
+            controls.touching = false;
+        }
+    }
+
+    private static void setFireHeld(Controls controls, boolean held, long timeNanos) {
+        if (held && !controls.fireHeld) latchPress(controls, timeNanos);
+        controls.fireHeld = held;
+    }
+
+    private static void latchPress(Controls controls, long timeNanos) {
+        controls.firePending = true;
+        if (controls.pressNanos == 0) controls.pressNanos = timeNanos;
+    }
+
+    private static void releaseControls(Controls controls) {
+        controls.touching = false;
+        controls.steerLeft = false;
+        controls.steerRight = false;
+        controls.fireHeld = false;
+        controls.firePending = false;
+        controls.pressNanos = 0;
+    }
+
+    private void resetControls(Controls controls, Spaceship ship) {
+        releaseControls(controls);
+        controls.targetX = ship.x + ship.width / 2f;
+    }
+
+    static int encodeInput(float targetX, boolean firing) {
+        return INPUT_PRESENT | (firing ? INPUT_FIRING : 0) | MathUtils.clamp(Math.round(targetX), 0, INPUT_X_MASK);
+    }
+
+    // Centers a ship under its input's target x and sets whether it fires this tick
+    private void applyInput(Spaceship ship, int input) {
+        if ((input & INPUT_PRESENT) == 0) {
+            ship.isFiring = false;
+            return;
+        }
+        ship.x = (input & INPUT_X_MASK) - ship.width / 2f;
+        ship.x = Math.max(0, Math.min(ship.x, worldWidth - ship.width));
+        ship.isFiring = (input & INPUT_FIRING) != 0;
+    }
+
+    private void resetShip(Spaceship ship) {
+        ship.isFiring = false;
+        ship.multiShotActive = false;
+        ship.multiShotDuration = 0f;
+        ship.isShieldActive = false;
+        ship.shieldDuration = 0f;
+        ship.fireTimer = 0f;
+    }
+
+    private void firePlayerProjectiles(Spaceship ship, float delta) {
         try {
-            playerProjectiles.fireTimer += delta;
-            if (spaceship.isFiring && playerProjectiles.fireTimer >= playerProjectiles.fireDelay) {
+            ship.fireTimer += delta;
+            if (ship.isFiring && ship.fireTimer >= playerProjectiles.fireDelay) {
                 Gdx.app.log("MainGame", "Firing player projectile");
-                float centerX = spaceship.x + spaceship.width / 2f - playerProjectiles.width / 2f;
-                float startY = spaceship.y + spaceship.height;
-                fireSound.play(soundLevel);
-                if (spaceship.multiShotActive) {
+                float centerX = ship.x + ship.width / 2f - playerProjectiles.width / 2f;
+                float startY = ship.y + ship.height;
+                gameEvents.post(GameEvents.PROJECTILE_FIRED, centerX, startY, 0);
+                if (ship.multiShotActive) {
                     float[] angles = {90f, 100f, 80f};
                     for (float angleDeg : angles) {
                         float angleRad = (float) Math.toRadians(angleDeg);
-                        Rectangle projectile = new Rectangle(centerX, startY, playerProjectiles.width, playerProjectiles.height);
-                        playerProjectiles.rectangles.add(projectile);
-                        playerProjectiles.velocityX.add((float) Math.cos(angleRad) * playerProjectiles.speed);
-                        playerProjectiles.velocityY.add((float) Math.sin(angleRad) * playerProjectiles.speed);
+                        playerProjectiles.add(centerX, startY,
+                            (float) Math.cos(angleRad) * playerProjectiles.speed, (float) Math.sin(angleRad) * playerProjectiles.speed);
                     }
                 } else {
-                    Rectangle projectile = new Rectangle(centerX, startY, playerProjectiles.width, playerProjectiles.height);
-                    playerProjectiles.rectangles.add(projectile);
-                    playerProjectiles.velocityX.add(0f);
-                    playerProjectiles.velocityY.add(playerProjectiles.speed);
+                    playerProjectiles.add(centerX, startY, 0f, playerProjectiles.speed);
                 }
-                playerProjectiles.fireTimer = 0f;
+                ship.fireTimer = 0f;
+                if (!resimulating && !headless) consumePress(ship == wingman ? wingmanControls : playerControls);
             }
         } catch (Exception e) {
             Gdx.app.error("MainGame", "Error firing player projectiles: " + e.getMessage(), e);
         }
     }
 
+    // The latched press has produced its shot; measure how long that took
+    private void consumePress(Controls controls) {
+        controls.firePending = false;
+        if (controls.pressNanos != 0) {
+            inputQueue.recordSpawnLatency(TimeUtils.nanoTime() - controls.pressNanos);
+            controls.pressNanos = 0;
+        }
+    }
+
     private void fireEnemyProjectiles(float delta) {
         try {
             if (invader == null || invader.rectangles == null) {
@@ -420,11 +943,8 @@ public class MainGame extends ApplicationAdapter {
                         Rectangle invaderRect = invader.rectangles.get(i);
                         float centerX = invaderRect.x + invaderRect.width / 2f - enemyProjectiles.width / 2f;
                         float startY = invaderRect.y;
-                        Rectangle projectile = new Rectangle(centerX, startY, enemyProjectiles.width, enemyProjectiles.height);
-                        enemyProjectiles.rectangles.add(projectile);
-                        enemyProjectiles.velocityX.add(0f);
-                        enemyProjectiles.velocityY.add(-enemyProjectileSpeed);
-                        fireSound.play(soundLevel);
+                        spawnEnemyProjectile(centerX, startY, 0f, -enemyProjectileSpeed);
+                        gameEvents.post(GameEvents.PROJECTILE_FIRED, centerX, startY, 1);
                     }
                 }
                 invader.fireTimer = 0f;
@@ -435,17 +955,16 @@ public class MainGame extends ApplicationAdapter {
     }
 
     private void updateGame(float delta) {
+        GamePhase phaseBefore = currentPhase;
         try {
             Gdx.app.log("MainGame", "Updating game, phase: " + currentPhase);
             animationTime += delta;
             gameTime += delta;
-            backdropYPosition -= backdropScrollSpeed * delta;
-            if (backdropYPosition <= -Gdx.graphics.getHeight()) {
-                backdropYPosition += Gdx.graphics.getHeight();
-            }
+            // The backdrop is not part of the match state, so replayed ticks must not move it again
+            if (!resimulating && !headless) spaceBackdrop.scroll(backdropScrollSpeed * delta, worldHeight);
 
-            // Update spaceship
-            updateSpaceshipPosition();
+            // Update spaceship; in versus and headless mode the inputs are applied by the caller
+            if (!versusMode && !headless) updateSpaceshipPosition(delta);
 
             // Update power-ups
             for (int i = powerup.rectangles.size - 1; i >= 0; i--) {
@@ -461,23 +980,13 @@ public class MainGame extends ApplicationAdapter {
                 Explosion blast = blasts.get(i);
                 blast.timer += delta;
                 if (blast.timer >= BLAST_DURATION) {
-                    blasts.removeIndex(i);
+                    spareBlasts.add(blasts.removeIndex(i));
                 }
             }
 
             // Update power-up timers
-            if (spaceship.multiShotActive) {
-                spaceship.multiShotDuration -= delta;
-                if (spaceship.multiShotDuration <= 0) {
-                    spaceship.multiShotActive = false;
-                }
-            }
-            if (spaceship.isShieldActive) {
-                spaceship.shieldDuration -= delta;
-                if (spaceship.shieldDuration <= 0) {
-                    spaceship.isShieldActive = false;
-                }
-            }
+            updatePowerupTimers(spaceship, delta);
+            if (versusMode) updatePowerupTimers(wingman, delta);
 
             if (currentPhase == GamePhase.ACTIVE) {
                 updateActivePhase(delta);
@@ -487,6 +996,37 @@ public class MainGame extends ApplicationAdapter {
         } catch (Exception e) {
             Gdx.app.error("MainGame", "Error updating game: " + e.getMessage(), e);
         }
+        try {
+            gameEvents.dispatch();
+            if (!headless && currentPhase != phaseBefore) {
+                if (currentPhase == GamePhase.VICTORY) {
+                    Gdx.input.setInputProcessor(gameStage);
+                    logMatchEvents();
+                    displayVictory();
+                } else if (currentPhase == GamePhase.DEFEAT) {
+                    Gdx.input.setInputProcessor(gameStage);
+                    logMatchEvents();
+                    displayDefeat();
+                }
+            }
+        } catch (Exception e) {
+            Gdx.app.error("MainGame", "Error dispatching game events: " + e.getMessage(), e);
+        }
+    }
+
+    private void updatePowerupTimers(Spaceship ship, float delta) {
+        if (ship.multiShotActive) {
+            ship.multiShotDuration -= delta;
+            if (ship.multiShotDuration <= 0) {
+                ship.multiShotActive = false;
+            }
+        }
+        if (ship.isShieldActive) {
+            ship.shieldDuration -= delta;
+            if (ship.shieldDuration <= 0) {
+                ship.isShieldActive = false;
+            }
+        }
     }
 
     private void updateActivePhase(float delta) {
@@ -501,7 +1041,7 @@ public class MainGame extends ApplicationAdapter {
             for (int i = 0; i < invader.rectangles.size; i++) {
                 Rectangle inv = invader.rectangles.get(i);
                 inv.x += invader.moveSpeed * invader.moveDirection * delta;
-                if ((invader.moveDirection == 1 && inv.x + invader.width >= Gdx.graphics.getWidth()) ||
+                if ((invader.moveDirection == 1 && inv.x + invader.width >= worldWidth) ||
                     (invader.moveDirection == -1 && inv.x <= 0)) {
                     shouldDrop = true;
                 }
@@ -518,15 +1058,20 @@ public class MainGame extends ApplicationAdapter {
             updateProjectiles(delta);
 
             // Fire projectiles
-            firePlayerProjectiles(delta);
+            firePlayerProjectiles(spaceship, delta);
+            if (versusMode) firePlayerProjectiles(wingman, delta);
             fireEnemyProjectiles(delta);
 
             // Check collisions
-            handleCollisionsActivePhase();
+            handleCollisionsActivePhase(delta);
 
-            // Spawn boss if all enemies defeated
+            // Spawn boss if all enemies defeated; endless mode brings on the next wave instead
             if (invader.rectangles.size == 0 && boss.rectangle == null) {
-                spawnFinalBoss();
+                if (endlessMode) {
+                    advanceWave();
+                } else {
+                    spawnFinalBoss();
+                }
             }
         } catch (Exception e) {
             Gdx.app.error("MainGame", "Error in updateActivePhase: " + e.getMessage(), e);
@@ -536,6 +1081,7 @@ public class MainGame extends ApplicationAdapter {
     private void updateFinalBossPhase(float delta) {
         try {
             Gdx.app.log("MainGame", "Updating final boss phase");
+            bossFightTime += delta;
             // Update boss
             if (boss.damageEffect) {
                 boss.damageTimer -= delta;
@@ -544,9 +1090,9 @@ public class MainGame extends ApplicationAdapter {
                 }
             }
             boss.rectangle.x += boss.moveSpeed * boss.moveDirection * delta;
-            if (boss.rectangle.x + boss.width >= Gdx.graphics.getWidth() || boss.rectangle.x <= 0) {
+            if (boss.rectangle.x + boss.width >= worldWidth || boss.rectangle.x <= 0) {
                 boss.moveDirection *= -1;
-                boss.rectangle.x = Math.max(0, Math.min(boss.rectangle.x, Gdx.graphics.getWidth() - boss.width));
+                boss.rectangle.x = Math.max(0, Math.min(boss.rectangle.x, worldWidth - boss.width));
             }
 
             // Update laser
@@ -562,15 +1108,85 @@ public class MainGame extends ApplicationAdapter {
             updateProjectiles(delta);
 
             // Fire projectiles
-            firePlayerProjectiles(delta);
+            firePlayerProjectiles(spaceship, delta);
+            if (versusMode) firePlayerProjectiles(wingman, delta);
+            updateBossPatterns(delta);
 
             // Check collisions
-            handleCollisionsFinalBossPhase();
+            handleCollisionsFinalBossPhase(delta);
         } catch (Exception e) {
             Gdx.app.error("MainGame", "Error in updateFinalBossPhase: " + e.getMessage(), e);
         }
     }
 
+    private void resetBossPatterns() {
+        boss.patternIndex = 0;
+        boss.patternVolley = 0;
+        boss.patternTimer = BulletPatterns.START_DELAY;
+    }
+
+    // Fires every volley that fell due in this tick; a long tick may fire several
+    private void updateBossPatterns(float delta) {
+        if (boss.rectangle == null) return;
+        boss.patternTimer -= delta;
+        while (boss.patternTimer <= 0f) {
+            BulletPatterns.Pattern[] schedule = BulletPatterns.schedule(boss.healthPoints, MAX_BOSS_HEALTH);
+            BulletPatterns.Pattern pattern = schedule[boss.patternIndex % schedule.length];
+            fireBossVolley(pattern, boss.patternVolley);
+            boss.patternVolley++;
+            if (boss.patternVolley >= pattern.volleys) {
+                boss.patternVolley = 0;
+                boss.patternIndex = (boss.patternIndex + 1) % schedule.length;
+                boss.patternTimer += pattern.rest;
+            } else {
+                boss.patternTimer += pattern.volleyInterval;
+            }
+        }
+    }
+
+    // Copies one volley from the pattern's tables into the enemy projectiles. Aimed patterns
+    // are rotated onto a ship (alternating between the two in versus mode); the others use
+    // their table as is, which is the same loop with the identity rotation.
+    private void fireBossVolley(BulletPatterns.Pattern pattern, int volley) {
+        float originX = boss.rectangle.x + boss.width / 2f - enemyProjectiles.width / 2f;
+        float originY = boss.rectangle.y + boss.height / 4f;
+        float aimX = 1f, aimY = 0f;
+        if (pattern.shape == BulletPatterns.AIMED) {
+            Spaceship target = versusMode && volley % 2 == 1 ? wingman : spaceship;
+            aimX = target.x + target.width / 2f - originX;
+            aimY = target.y + target.height / 2f - originY;
+            float length = (float) Math.sqrt(aimX * aimX + aimY * aimY);
+            if (length < 1f) {
+                aimX = 0f;
+                aimY = -1f;
+            } else {
+                aimX /= length;
+                aimY /= length;
+            }
+        }
+        float[] tableX = pattern.velocityX, tableY = pattern.velocityY;
+        int offset = pattern.tableOffset(volley);
+        enemyProjectiles.ensureCapacity(Math.min(pattern.bullets, projectileBudget.getLimit()));
+        for (int k = offset; k < offset + pattern.bullets; k++) {
+            spawnEnemyProjectile(originX, originY, aimX * tableX[k] - aimY * tableY[k], aimY * tableX[k] + aimX * tableY[k]);
+        }
+        gameEvents.post(GameEvents.PROJECTILE_FIRED, originX, originY, 1);
+    }
+
+    // Every enemy projectile goes through the budget, which may cull one to make room
+    private void spawnEnemyProjectile(float x, float y, float vx, float vy) {
+        if (enemyProjectiles.rectangles.size >= projectileBudget.getLimit()) {
+            Spaceship second = versusMode ? wingman : spaceship;
+            int victim = projectileBudget.selectVictim(enemyProjectiles.rectangles, enemyProjectiles.velocityY, x, y,
+                spaceship.x + spaceship.width / 2f, spaceship.y + spaceship.height / 2f,
+                second.x + second.width / 2f, second.y + second.height / 2f);
+            if (victim == ProjectileBudget.REJECT_SPAWN) return;
+            enemyProjectiles.remove(victim);
+        }
+        enemyProjectiles.add(x, y, vx, vy);
+        projectileBudget.countSpawn(enemyProjectiles.rectangles.size);
+    }
+
     private void updateProjectiles(float delta) {
         try {
             // Player projectiles
@@ -578,10 +1194,8 @@ public class MainGame extends ApplicationAdapter {
                 Rectangle p = playerProjectiles.rectangles.get(i);
                 p.x += playerProjectiles.velocityX.get(i) * delta;
                 p.y += playerProjectiles.velocityY.get(i) * delta;
-                if (p.y > Gdx.graphics.getHeight() || p.x < -playerProjectiles.width || p.x > Gdx.graphics.getWidth()) {
-                    playerProjectiles.rectangles.removeIndex(i);
-                    playerProjectiles.velocityX.removeIndex(i);
-                    playerProjectiles.velocityY.removeIndex(i);
+                if (p.y > worldHeight || p.x < -playerProjectiles.width || p.x > worldWidth) {
+                    playerProjectiles.remove(i);
                 }
             }
 
@@ -590,10 +1204,8 @@ public class MainGame extends ApplicationAdapter {
                 Rectangle p = enemyProjectiles.rectangles.get(i);
                 p.x += enemyProjectiles.velocityX.get(i) * delta;
                 p.y += enemyProjectiles.velocityY.get(i) * delta;
-                if (p.y < -enemyProjectiles.height || p.x < -enemyProjectiles.width || p.x > Gdx.graphics.getWidth()) {
-                    enemyProjectiles.rectangles.removeIndex(i);
-                    enemyProjectiles.velocityX.removeIndex(i);
-                    enemyProjectiles.velocityY.removeIndex(i);
+                if (p.y < -enemyProjectiles.height || p.y > worldHeight || p.x < -enemyProjectiles.width || p.x > worldWidth) {
+                    enemyProjectiles.remove(i);
                 }
             }
         } catch (Exception e) {
@@ -601,19 +1213,20 @@ public class MainGame extends ApplicationAdapter {
         }
     }
 
-    private void handleCollisionsActivePhase() {
+    private void handleCollisionsActivePhase(float delta) {
         try {
             if (invader == null || invader.rectangles == null) {
                 Gdx.app.log("MainGame", "Skipping handleCollisionsActivePhase: invader or rectangles null");
                 return;
             }
             Rectangle spaceshipRect = new Rectangle(spaceship.x, spaceship.y, spaceship.width, spaceship.height);
+            Rectangle wingmanRect = new Rectangle(wingman.x, wingman.y, wingman.width, wingman.height);
 
             // Invader collisions
             boolean invadersReachedBottom = false;
             for (int i = 0; i < invader.rectangles.size; i++) {
                 Rectangle inv = invader.rectangles.get(i);
-                if (inv.y <= spaceship.y + spaceship.height / 1.3) {
+                if (inv.y <= spaceshipTop()) {
                     invadersReachedBottom = true;
                     break;
                 }
@@ -624,65 +1237,66 @@ public class MainGame extends ApplicationAdapter {
                 return;
             }
 
+            // Bunker collisions
+            handleBunkerCollisions(delta);
+
             // Projectile collisions
-            for (int i = playerProjectiles.rectangles.size - 1; i >= 0; i--) {
-                Rectangle projectile = playerProjectiles.rectangles.get(i);
+            collisionResolver.resolve(playerProjectiles.rectangles, playerProjectiles.velocityX, playerProjectiles.velocityY, delta, invader.rectangles);
+            for (int k = 0; k < collisionResolver.hitInvaders.size; k++) {
+                int j = collisionResolver.hitInvaders.get(k);
+                Rectangle inv = invader.rectangles.get(j);
+                gameEvents.post(GameEvents.INVADER_KILLED, inv.x + inv.width / 2f, inv.y,
+                    invader.isShootEnemy.get(j) ? SCORE_PER_SHOOT_INVADER : SCORE_PER_INVADER);
+            }
+            if (collisionResolver.hitInvaders.size > 0) {
                 for (int j = invader.rectangles.size - 1; j >= 0; j--) {
-                    Rectangle inv = invader.rectangles.get(j);
-                    if (projectile.overlaps(inv)) {
-                        spawnBlast(inv.x + inv.width / 2f, inv.y + inv.height / 2f);
-                        boolean isShootEnemy = invader.isShootEnemy.get(j);
-                        invader.rectangles.removeIndex(j);
-                        invader.isShootEnemy.removeIndex(j);
-                        playerProjectiles.rectangles.removeIndex(i);
-                        playerProjectiles.velocityX.removeIndex(i);
-                        playerProjectiles.velocityY.removeIndex(i);
-                        playerScore += isShootEnemy ? SCORE_PER_SHOOT_INVADER : SCORE_PER_INVADER;
-                        invaderDestroyedSound.play(soundLevel);
-                        spawnPowerup(inv);
-                        break;
+                    if (collisionResolver.isInvaderKilled(j)) {
+                        invader.remove(j);
                     }
                 }
-            }
-
-            // Power-up collisions
-            for (int i = powerup.rectangles.size - 1; i >= 0; i--) {
-                Rectangle p = powerup.rectangles.get(i);
-                if (p.overlaps(spaceshipRect)) {
-                    if (p.height == powerup.height) {
-                        spaceship.multiShotActive = true;
-                        spaceship.multiShotDuration = MULTI_SHOT_ACTIVE_TIME;
-                    } else {
-                        spaceship.isShieldActive = true;
-                        spaceship.shieldDuration = SHIELD_ACTIVE_TIME;
+                for (int i = playerProjectiles.rectangles.size - 1; i >= 0; i--) {
+                    if (collisionResolver.isProjectileConsumed(i)) {
+                        playerProjectiles.remove(i);
                     }
-                    powerupCollectedSound.play(soundLevel);
-                    powerup.rectangles.removeIndex(i);
                 }
             }
 
+            // Power-up collisions
+            collectPowerups(spaceship, spaceshipRect);
+            if (versusMode) collectPowerups(wingman, wingmanRect);
+
             // Enemy projectile collisions
-            for (int i = enemyProjectiles.rectangles.size - 1; i >= 0; i--) {
-                Rectangle projectile = enemyProjectiles.rectangles.get(i);
-                if (projectile.overlaps(spaceshipRect) && !spaceship.isShieldActive) {
-                    loseLife();
-                    enemyProjectiles.rectangles.removeIndex(i);
-                    enemyProjectiles.velocityX.removeIndex(i);
-                    enemyProjectiles.velocityY.removeIndex(i);
-                    return;
-                }
+            int hit = findEnemyProjectileHit(delta, spaceshipRect, wingmanRect);
+            if (hit >= 0) {
+                loseLife();
+                enemyProjectiles.remove(hit);
             }
         } catch (Exception e) {
             Gdx.app.error("MainGame", "Error in handleCollisionsActivePhase: " + e.getMessage(), e);
         }
     }
 
-    private void handleCollisionsFinalBossPhase() {
+    // Index of an enemy projectile hitting an unshielded ship this tick, or -1
+    private int findEnemyProjectileHit(float delta, Rectangle spaceshipRect, Rectangle wingmanRect) {
+        for (int i = enemyProjectiles.rectangles.size - 1; i >= 0; i--) {
+            Rectangle projectile = enemyProjectiles.rectangles.get(i);
+            float dx = enemyProjectiles.velocityX.get(i) * delta;
+            float dy = enemyProjectiles.velocityY.get(i) * delta;
+            if (projectileHitsShip(spaceship, spaceshipRect, projectile, dx, dy) ||
+                (versusMode && projectileHitsShip(wingman, wingmanRect, projectile, dx, dy))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void handleCollisionsFinalBossPhase(float delta) {
         try {
             Rectangle spaceshipRect = new Rectangle(spaceship.x, spaceship.y, spaceship.width, spaceship.height);
+            Rectangle wingmanRect = new Rectangle(wingman.x, wingman.y, wingman.width, wingman.height);
 
             // Boss collision
-            if (boss.rectangle != null && boss.rectangle.y <= spaceship.y + spaceship.height / 1.3 && !spaceship.isShieldActive) {
+            if (boss.rectangle != null && boss.rectangle.y <= spaceshipTop() && !spaceship.isShieldActive) {
                 loseLife();
                 resetBoss();
                 return;
@@ -696,75 +1310,190 @@ public class MainGame extends ApplicationAdapter {
                     boss.laserWidth,
                     boss.laserHeight
                 );
-                if (laserRect.overlaps(spaceshipRect) && !spaceship.isShieldActive) {
+                if (laserHitsShip(spaceship, spaceshipRect, laserRect) ||
+                    (versusMode && laserHitsShip(wingman, wingmanRect, laserRect))) {
                     loseLife();
                     resetBoss();
                     return;
                 }
             }
 
+            // Bunker collisions
+            handleBunkerCollisions(delta);
+
             // Projectile collisions
             for (int i = playerProjectiles.rectangles.size - 1; i >= 0; i--) {
                 Rectangle projectile = playerProjectiles.rectangles.get(i);
-                if (boss.rectangle != null && projectile.overlaps(boss.rectangle)) {
-                    spawnBlast(projectile.x + projectile.width / 2f, projectile.y + projectile.height / 2f);
+                float dx = playerProjectiles.velocityX.get(i) * delta;
+                float dy = playerProjectiles.velocityY.get(i) * delta;
+                if (boss.rectangle != null && CollisionResolver.sweptOverlaps(projectile, dx, dy, boss.rectangle) &&
+                    CollisionResolver.pixelOverlaps(projectileMask, projectile, dx, dy, bossMask, boss.rectangle)) {
+                    gameEvents.post(GameEvents.BOSS_HIT, projectile.x + projectile.width / 2f, projectile.y + projectile.height / 2f, 0);
                     boss.healthPoints--;
                     boss.damageEffect = true;
                     boss.damageTimer = BOSS_DAMAGE_FEEDBACK_DURATION;
-                    playerProjectiles.rectangles.removeIndex(i);
-                    playerProjectiles.velocityX.removeIndex(i);
-                    playerProjectiles.velocityY.removeIndex(i);
-                    bossDamagedSound.play(soundLevel);
+                    playerProjectiles.remove(i);
                     if (boss.healthPoints <= 0) {
-                        spawnBlast(boss.rectangle.x + boss.width / 2f, boss.rectangle.y + boss.height / 2f);
-                        playerScore += SCORE_PER_BOSS;
+                        gameEvents.post(GameEvents.BOSS_DESTROYED, boss.rectangle.x + boss.width / 2f,
+                            boss.rectangle.y + boss.height / 2f, SCORE_PER_BOSS);
                         boss.rectangle = null;
-                        currentPhase = GamePhase.VICTORY;
-                        playerProjectiles.rectangles.clear();
-                        playerProjectiles.velocityX.clear();
-                        playerProjectiles.velocityY.clear();
-                        enemyProjectiles.rectangles.clear();
-                        enemyProjectiles.velocityX.clear();
-                        enemyProjectiles.velocityY.clear();
-                        powerup.rectangles.clear();
-                        Gdx.input.setInputProcessor(gameStage);
-                        displayVictory();
+                        if (endlessMode) {
+                            enemyProjectiles.clear();
+                            currentPhase = GamePhase.ACTIVE;
+                            advanceWave();
+                        } else {
+                            currentPhase = GamePhase.VICTORY;
+                            playerProjectiles.clear();
+                            enemyProjectiles.clear();
+                            powerup.rectangles.clear();
+                        }
                     }
                     break;
                 }
             }
 
             // Power-up collisions
-            for (int i = powerup.rectangles.size - 1; i >= 0; i--) {
-                Rectangle p = powerup.rectangles.get(i);
-                if (p.overlaps(spaceshipRect)) {
-                    if (p.height == powerup.height) {
-                        spaceship.multiShotActive = true;
-                        spaceship.multiShotDuration = MULTI_SHOT_ACTIVE_TIME;
-                    } else {
-                        spaceship.isShieldActive = true;
-                        spaceship.shieldDuration = SHIELD_ACTIVE_TIME;
-                    }
-                    powerupCollectedSound.play(soundLevel);
-                    powerup.rectangles.removeIndex(i);
-                }
+            collectPowerups(spaceship, spaceshipRect);
+            if (versusMode) collectPowerups(wingman, wingmanRect);
+
+            // Boss bullets; a hit clears the screen so a dense volley costs one life, not several
+            if (boss.rectangle != null && findEnemyProjectileHit(delta, spaceshipRect, wingmanRect) >= 0) {
+                loseLife();
+                enemyProjectiles.clear();
             }
         } catch (Exception e) {
             Gdx.app.error("MainGame", "Error in handleCollisionsFinalBossPhase: " + e.getMessage(), e);
         }
     }
 
-    private void loseLife() {
+    private void collectPowerups(Spaceship ship, Rectangle shipRect) {
+        for (int i = powerup.rectangles.size - 1; i >= 0; i--) {
+            Rectangle p = powerup.rectangles.get(i);
+            if (p.overlaps(shipRect)) {
+                if (p.height == powerup.height) {
+                    ship.multiShotActive = true;
+                    ship.multiShotDuration = MULTI_SHOT_ACTIVE_TIME;
+                } else {
+                    ship.isShieldActive = true;
+                    ship.shieldDuration = SHIELD_ACTIVE_TIME;
+                }
+                gameEvents.post(GameEvents.POWERUP_COLLECTED, p.x, p.y, p.height == powerup.height ? 0 : 1);
+                powerup.rectangles.removeIndex(i);
+            }
+        }
+    }
+
+    private boolean projectileHitsShip(Spaceship ship, Rectangle shipRect, Rectangle projectile, float dx, float dy) {
+        return !ship.isShieldActive && CollisionResolver.sweptOverlaps(projectile, dx, dy, shipRect) &&
+            CollisionResolver.pixelOverlaps(projectileMask, projectile, dx, dy, spaceshipMask, shipRect);
+    }
+
+    private boolean laserHitsShip(Spaceship ship, Rectangle shipRect, Rectangle laserRect) {
+        return laserRect.overlaps(shipRect) && !ship.isShieldActive &&
+            (spaceshipMask == null || CollisionMask.overlaps(spaceshipMask, ship.x, ship.y, laserRect));
+    }
+
+    private void handleBunkerCollisions(float delta) {
         try {
-            playerLives--;
-            lifeLostSound.play(soundLevel);
-            if (playerLives <= 0) {
-                currentPhase = GamePhase.DEFEAT;
-                Gdx.input.setInputProcessor(gameStage);
-                displayDefeat();
+            for (int b = 0; b < bunkers.size; b++) {
+                Bunker bunker = bunkers.get(b);
+                for (int i = playerProjectiles.rectangles.size - 1; i >= 0; i--) {
+                    Rectangle projectile = playerProjectiles.rectangles.get(i);
+                    if (bunker.hit(projectile, playerProjectiles.velocityX.get(i) * delta, playerProjectiles.velocityY.get(i) * delta)) {
+                        playerProjectiles.remove(i);
+                    }
+                }
+                for (int i = enemyProjectiles.rectangles.size - 1; i >= 0; i--) {
+                    Rectangle projectile = enemyProjectiles.rectangles.get(i);
+                    if (bunker.hit(projectile, enemyProjectiles.velocityX.get(i) * delta, enemyProjectiles.velocityY.get(i) * delta)) {
+                        enemyProjectiles.remove(i);
+                    }
+                }
+                // Invaders marching through a bunker wear it away
+                for (int i = 0; i < invader.rectangles.size; i++) {
+                    bunker.erode(invader.rectangles.get(i));
+                }
             }
         } catch (Exception e) {
-            Gdx.app.error("MainGame", "Error in loseLife: " + e.getMessage(), e);
+            Gdx.app.error("MainGame", "Error in handleBunkerCollisions: " + e.getMessage(), e);
+        }
+    }
+
+    // Top of the spaceship's opaque pixels; enemies below this line have reached the player
+    private float spaceshipTop() {
+        return spaceship.y + (spaceshipMask != null ? spaceshipMask.opaqueTop() : spaceship.height);
+    }
+
+    private void loseLife() {
+        gameEvents.post(GameEvents.LIFE_LOST, spaceship.x + spaceship.width / 2f, spaceship.y, 0);
+    }
+
+    private void logMatchEvents() {
+        Gdx.app.log("MainGame", "Match events: " + matchEventCounts[GameEvents.INVADER_KILLED] + " kills, "
+            + matchEventCounts[GameEvents.BOSS_HIT] + " boss hits, "
+            + matchEventCounts[GameEvents.POWERUP_COLLECTED] + " pickups, "
+            + matchEventCounts[GameEvents.LIFE_LOST] + " lives lost, "
+            + matchEventCounts[GameEvents.PROJECTILE_FIRED] + " shots");
+    }
+
+    // Game event consumers, in the order they run
+
+    private void countGameEvent(int type, float x, float y, int value) {
+        if (type == GameEvents.INVADER_KILLED) invadersKilled++;
+        // Replayed ticks already counted their events the first time
+        if (!resimulating) matchEventCounts[type]++;
+    }
+
+    private void applyScoreEvent(int type, float x, float y, int value) {
+        switch (type) {
+            case GameEvents.INVADER_KILLED:
+            case GameEvents.BOSS_DESTROYED:
+                playerScore += value;
+                break;
+            case GameEvents.LIFE_LOST:
+                if (infiniteLives) break;
+                playerLives--;
+                if (playerLives <= 0) currentPhase = GamePhase.DEFEAT;
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void spawnEventEffects(int type, float x, float y, int value) {
+        switch (type) {
+            case GameEvents.INVADER_KILLED:
+                spawnBlast(x, y + invader.height / 2f);
+                spawnPowerup(x, y);
+                break;
+            case GameEvents.BOSS_HIT:
+            case GameEvents.BOSS_DESTROYED:
+                spawnBlast(x, y);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void playEventSound(int type, float x, float y, int value) {
+        switch (type) {
+            case GameEvents.INVADER_KILLED:
+                playSound(invaderDestroyedSound);
+                break;
+            case GameEvents.BOSS_HIT:
+                playSound(bossDamagedSound);
+                break;
+            case GameEvents.POWERUP_COLLECTED:
+                playSound(powerupCollectedSound);
+                break;
+            case GameEvents.LIFE_LOST:
+                playSound(lifeLostSound);
+                break;
+            case GameEvents.PROJECTILE_FIRED:
+                playSound(fireSound);
+                break;
+            default:
+                break;
         }
     }
 
@@ -773,21 +1502,25 @@ public class MainGame extends ApplicationAdapter {
             if (invader == null) {
                 invader = new Invader();
             }
+            // Endless waves come back in their generated layout, so a seed always plays the same
+            if (endlessMode) {
+                float speed = invader.moveSpeed;
+                spawnWave();
+                invader.moveSpeed = speed + INVADER_SPEED_BOOST;
+                return;
+            }
             int totalInvaders = invader.rectangles.size;
             int invadersPerRow = 7;
             int spacing = 60;
             int rows = (int) Math.ceil((float) totalInvaders / invadersPerRow);
-            invader.rectangles.clear();
-            invader.isShootEnemy.clear();
+            invader.clear();
             for (int row = 0; row < rows; row++) {
                 int invadersInThisRow = Math.min(invadersPerRow, totalInvaders - row * invadersPerRow);
                 float totalRowWidth = invadersInThisRow * invader.width + (invadersInThisRow - 1) * spacing;
-                float startX = (Gdx.graphics.getWidth() - totalRowWidth) / 2f;
+                float startX = (worldWidth - totalRowWidth) / 2f;
                 float y = invader.startY - row * (invader.height + spacing);
                 for (int col = 0; col < invadersInThisRow; col++) {
-                    Rectangle rect = new Rectangle(startX + col * (invader.width + spacing), y, invader.width, invader.height);
-                    invader.rectangles.add(rect);
-                    invader.isShootEnemy.add(Math.random() < 0.2); // 20% chance to be shoot_enemy
+                    invader.add(startX + col * (invader.width + spacing), y, random.nextFloat() < 0.2f); // 20% chance to be shoot_enemy
                 }
             }
             invader.moveSpeed += INVADER_SPEED_BOOST;
@@ -798,28 +1531,28 @@ public class MainGame extends ApplicationAdapter {
 
     private void resetBoss() {
         try {
-            boss.rectangle.x = (Gdx.graphics.getWidth() - boss.width) / 2f;
-            boss.rectangle.y = Gdx.graphics.getHeight() - boss.height - 60;
+            boss.rectangle.x = (worldWidth - boss.width) / 2f;
+            boss.rectangle.y = worldHeight - boss.height - 60;
             boss.healthPoints = MAX_BOSS_HEALTH;
             boss.moveDirection = 1;
-            enemyProjectiles.rectangles.clear();
-            enemyProjectiles.velocityX.clear();
-            enemyProjectiles.velocityY.clear();
+            enemyProjectiles.clear();
             boss.damageTimer = 0f;
+            resetBossPatterns();
             boss.damageEffect = false;
         } catch (Exception e) {
             Gdx.app.error("MainGame", "Error resetting boss: " + e.getMessage(), e);
         }
     }
 
-    private void spawnPowerup(Rectangle enemy) {
+    // Sometimes drops a power-up from a destroyed enemy's bottom center
+    private void spawnPowerup(float x, float y) {
         try {
-            if (Math.random() < POWERUP_DROP_CHANCE) {
+            if (random.nextFloat() < POWERUP_DROP_CHANCE) {
                 Rectangle p = new Rectangle();
-                p.x = enemy.x + enemy.width / 2f - powerup.width / 2f;
-                p.y = enemy.y;
+                p.x = x - powerup.width / 2f;
+                p.y = y;
                 p.width = powerup.width;
-                p.height = Math.random() < 0.5 ? powerup.height : powerup.height + 1;
+                p.height = random.nextBoolean() ? powerup.height : powerup.height + 1;
                 powerup.rectangles.add(p);
             }
         } catch (Exception e) {
@@ -827,20 +1560,412 @@ public class MainGame extends ApplicationAdapter {
         }
     }
 
+    // Gameplay sounds stay silent while the rollback session replays ticks that already played them
+    private void playSound(Sound sound) {
+        if (!resimulating && !headless) sound.play(soundLevel);
+    }
+
     private void spawnBlast(float x, float y) {
         try {
-            blasts.add(new Explosion(x - blastWidth / 2f, y - blastHeight / 2f));
+            Explosion blast = spareBlasts.size > 0 ? spareBlasts.pop() : new Explosion(0, 0);
+            blast.x = x - blastWidth / 2f;
+            blast.y = y - blastHeight / 2f;
+            blast.timer = 0f;
+            blasts.add(blast);
         } catch (Exception e) {
             Gdx.app.error("MainGame", "Error spawning blast: " + e.getMessage(), e);
         }
     }
 
+    // Writes the whole match into the buffer, growing it when needed, and returns the buffer
+    // flipped for reading. Sizes are known up front, so a warm buffer is reused as is.
+    ByteBuffer saveSnapshot(ByteBuffer buffer) {
+        int required = 320
+            + invader.rectangles.size * 9
+            + (playerProjectiles.rectangles.size + enemyProjectiles.rectangles.size) * 16
+            + powerup.rectangles.size * 9
+            + blasts.size * 12
+            + bunkers.size * Bunker.SNAPSHOT_SIZE;
+        if (buffer == null || buffer.capacity() < required) {
+            buffer = ByteBuffer.allocateDirect(Math.max(required, buffer == null ? 0 : buffer.capacity() * 2));
+        }
+        buffer.clear();
+        buffer.putInt(SNAPSHOT_MAGIC);
+        buffer.putShort(SNAPSHOT_VERSION);
+
+        // Match progress
+        buffer.putInt(playerScore);
+        buffer.putInt(playerLives);
+        buffer.putInt(invadersKilled);
+        buffer.putFloat(animationTime);
+        buffer.putFloat(gameTime);
+        buffer.putFloat(bossFightTime);
+        buffer.putLong(random.getState(0));
+        buffer.putLong(random.getState(1));
+
+        // Ships
+        buffer.put((byte) (versusMode ? 1 : 0));
+        buffer.put((byte) (endlessMode ? 1 : 0));
+        buffer.putInt(waveNumber);
+        buffer.putLong(waveSeed);
+        writeShip(buffer, spaceship);
+        writeShip(buffer, wingman);
+
+        // Formation
+        buffer.putFloat(invader.startY);
+        buffer.putFloat(invader.moveSpeed);
+        buffer.put((byte) invader.moveDirection);
+        buffer.putFloat(invader.fireTimer);
+        buffer.putInt(invader.rectangles.size);
+        for (int i = 0; i < invader.rectangles.size; i++) {
+            Rectangle inv = invader.rectangles.get(i);
+            buffer.putFloat(inv.x);
+            buffer.putFloat(inv.y);
+            buffer.put((byte) (invader.isShootEnemy.get(i) ? 1 : 0));
+        }
+
+        // Boss
+        buffer.put((byte) (boss.rectangle != null ? 1 : 0));
+        buffer.putFloat(boss.rectangle != null ? boss.rectangle.x : 0f);
+        buffer.putFloat(boss.rectangle != null ? boss.rectangle.y : 0f);
+        buffer.put((byte) boss.moveDirection);
+        buffer.putInt(boss.healthPoints);
+        buffer.put((byte) ((boss.damageEffect ? 1 : 0) | (boss.isLaserActive ? 2 : 0)));
+        buffer.putFloat(boss.damageTimer);
+        buffer.putFloat(boss.laserTimer);
+        buffer.putInt(boss.patternIndex);
+        buffer.putInt(boss.patternVolley);
+        buffer.putFloat(boss.patternTimer);
+
+        // Projectiles, power-ups and blasts
+        writeProjectiles(buffer, playerProjectiles);
+        writeProjectiles(buffer, enemyProjectiles);
+        buffer.putInt(powerup.rectangles.size);
+        for (Rectangle p : powerup.rectangles) {
+            buffer.putFloat(p.x);
+            buffer.putFloat(p.y);
+            buffer.put((byte) (p.height == powerup.height ? 0 : 1));
+        }
+        buffer.putInt(blasts.size);
+        for (Explosion blast : blasts) {
+            buffer.putFloat(blast.x);
+            buffer.putFloat(blast.y);
+            buffer.putFloat(blast.timer);
+        }
+
+        // Bunkers
+        buffer.put((byte) bunkers.size);
+        for (Bunker bunker : bunkers) bunker.write(buffer);
+
+        buffer.flip();
+        return buffer;
+    }
+
+    private static void writeShip(ByteBuffer buffer, Spaceship ship) {
+        buffer.putFloat(ship.x);
+        buffer.putFloat(ship.y);
+        buffer.put((byte) ((ship.isFiring ? 1 : 0) | (ship.multiShotActive ? 2 : 0) | (ship.isShieldActive ? 4 : 0)));
+        buffer.putFloat(ship.multiShotDuration);
+        buffer.putFloat(ship.shieldDuration);
+        buffer.putFloat(ship.fireTimer);
+    }
+
+    private void writeProjectiles(ByteBuffer buffer, Projectile projectiles) {
+        buffer.putInt(projectiles.rectangles.size);
+        for (int i = 0; i < projectiles.rectangles.size; i++) {
+            Rectangle p = projectiles.rectangles.get(i);
+            buffer.putFloat(p.x);
+            buffer.putFloat(p.y);
+            buffer.putFloat(projectiles.velocityX.get(i));
+            buffer.putFloat(projectiles.velocityY.get(i));
+        }
+    }
+
+    // Whether the bytes start with a snapshot header this version can restore
+    static boolean isSnapshot(ByteBuffer buffer) {
+        return buffer.remaining() >= 6 && buffer.getInt(buffer.position()) == SNAPSHOT_MAGIC
+            && buffer.getShort(buffer.position() + 4) == SNAPSHOT_VERSION;
+    }
+
+    // Restores a snapshot written by saveSnapshot, reusing existing objects where possible.
+    // Returns false, leaving the match untouched, when the data is not a known snapshot.
+    private boolean restoreSnapshot(ByteBuffer buffer) {
+        if (buffer.remaining() < 6 || buffer.getInt() != SNAPSHOT_MAGIC) return false;
+        short version = buffer.getShort();
+        if (version != SNAPSHOT_VERSION) {
+            Gdx.app.error("MainGame", "Unsupported snapshot version " + version);
+            return false;
+        }
+
+        playerScore = buffer.getInt();
+        playerLives = buffer.getInt();
+        invadersKilled = buffer.getInt();
+        animationTime = buffer.getFloat();
+        gameTime = buffer.getFloat();
+        bossFightTime = buffer.getFloat();
+        random.setState(buffer.getLong(), buffer.getLong());
+
+        versusMode = buffer.get() != 0;
+        endlessMode = buffer.get() != 0;
+        waveNumber = buffer.getInt();
+        waveSeed = buffer.getLong();
+        readShip(buffer, spaceship);
+        readShip(buffer, wingman);
+
+        invader.startY = buffer.getFloat();
+        invader.moveSpeed = buffer.getFloat();
+        invader.moveDirection = buffer.get();
+        invader.fireTimer = buffer.getFloat();
+        int invaderCount = buffer.getInt();
+        resizeRectangles(invader.rectangles, invaderCount, invader.width, invader.height);
+        invader.isShootEnemy.clear();
+        for (int i = 0; i < invaderCount; i++) {
+            Rectangle inv = invader.rectangles.get(i);
+            inv.x = buffer.getFloat();
+            inv.y = buffer.getFloat();
+            invader.isShootEnemy.add(buffer.get() != 0);
+        }
+
+        boolean bossPresent = buffer.get() != 0;
+        float bossX = buffer.getFloat();
+        float bossY = buffer.getFloat();
+        if (bossPresent) {
+            if (boss.rectangle == null) boss.rectangle = new Rectangle(0, 0, boss.width, boss.height);
+            boss.rectangle.setPosition(bossX, bossY);
+        } else {
+            boss.rectangle = null;
+        }
+        boss.moveDirection = buffer.get();
+        boss.healthPoints = buffer.getInt();
+        byte bossFlags = buffer.get();
+        boss.damageEffect = (bossFlags & 1) != 0;
+        boss.isLaserActive = (bossFlags & 2) != 0;
+        boss.damageTimer = buffer.getFloat();
+        boss.laserTimer = buffer.getFloat();
+        boss.patternIndex = buffer.getInt();
+        boss.patternVolley = buffer.getInt();
+        boss.patternTimer = buffer.getFloat();
+
+        readProjectiles(buffer, playerProjectiles);
+        readProjectiles(buffer, enemyProjectiles);
+        int powerupCount = buffer.getInt();
+        resizeRectangles(powerup.rectangles, powerupCount, powerup.width, powerup.height);
+        for (Rectangle p : powerup.rectangles) {
+            p.x = buffer.getFloat();
+            p.y = buffer.getFloat();
+            p.height = buffer.get() == 0 ? powerup.height : powerup.height + 1;
+        }
+        int blastCount = buffer.getInt();
+        blasts.truncate(Math.min(blasts.size, blastCount));
+        while (blasts.size < blastCount) blasts.add(new Explosion(0, 0));
+        for (Explosion blast : blasts) {
+            blast.x = buffer.getFloat();
+            blast.y = buffer.getFloat();
+            blast.timer = buffer.getFloat();
+        }
+
+        int bunkerCount = buffer.get();
+        for (int i = 0; i < bunkerCount; i++) bunkers.get(i).read(buffer);
+        return true;
+    }
+
+    private static void readShip(ByteBuffer buffer, Spaceship ship) {
+        ship.x = buffer.getFloat();
+        ship.y = buffer.getFloat();
+        byte flags = buffer.get();
+        ship.isFiring = (flags & 1) != 0;
+        ship.multiShotActive = (flags & 2) != 0;
+        ship.isShieldActive = (flags & 4) != 0;
+        ship.multiShotDuration = buffer.getFloat();
+        ship.shieldDuration = buffer.getFloat();
+        ship.fireTimer = buffer.getFloat();
+    }
+
+    private void readProjectiles(ByteBuffer buffer, Projectile projectiles) {
+        int count = buffer.getInt();
+        resizeRectangles(projectiles.rectangles, count, projectiles.width, projectiles.height);
+        projectiles.velocityX.clear();
+        projectiles.velocityY.clear();
+        for (int i = 0; i < count; i++) {
+            projectiles.rectangles.get(i).setPosition(buffer.getFloat(), buffer.getFloat());
+            projectiles.velocityX.add(buffer.getFloat());
+            projectiles.velocityY.add(buffer.getFloat());
+        }
+    }
+
+    private static void resizeRectangles(Array<Rectangle> rectangles, int size, float width, float height) {
+        rectangles.truncate(Math.min(rectangles.size, size));
+        while (rectangles.size < size) rectangles.add(new Rectangle(0, 0, width, height));
+    }
+
+    // Keeps the paused match on disk, so it survives the process being killed in the background
+    private void writeQuickSave() {
+        try {
+            snapshotBuffer = saveSnapshot(snapshotBuffer);
+            byte[] bytes = new byte[snapshotBuffer.remaining()];
+            snapshotBuffer.get(bytes);
+            Gdx.files.local(QUICK_SAVE_FILE).writeBytes(bytes, false);
+            Gdx.app.log("MainGame", "Quick-saved " + bytes.length + " bytes");
+        } catch (Exception e) {
+            Gdx.app.error("MainGame", "Error writing quick save: " + e.getMessage(), e);
+        }
+    }
+
+    private void deleteQuickSave() {
+        FileHandle quickSave = Gdx.files.local(QUICK_SAVE_FILE);
+        if (quickSave.exists()) quickSave.delete();
+        if (continueButton != null) continueButton.setVisible(false);
+    }
+
+    private void continueFromQuickSave() {
+        currentPhase = GamePhase.ACTIVE;
+        spaceBackdrop.reset();
+        versusMode = false;
+        endlessMode = false;
+        versusSession = null;
+        initializeGame();
+        try {
+            byte[] bytes = Gdx.files.local(QUICK_SAVE_FILE).readBytes();
+            ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+            buffer.put(bytes).flip();
+            if (!restoreSnapshot(buffer)) {
+                Gdx.app.error("MainGame", "Quick save could not be restored, starting a new game");
+                deleteQuickSave();
+                return;
+            }
+        } catch (Exception e) {
+            // A truncated file leaves the match half restored, so start over cleanly
+            Gdx.app.error("MainGame", "Error reading quick save: " + e.getMessage(), e);
+            deleteQuickSave();
+            versusMode = false;
+            endlessMode = false;
+            initializeGame();
+            return;
+        }
+        if (versusMode) startVersusSession();
+        currentPhase = GamePhase.PAUSED;
+        gameTrack.pause();
+        displayPauseMenu();
+    }
+
+    private void startReplay() {
+        replayCodec.reset();
+        replayStream.clear();
+        replayStream.putInt(REPLAY_MAGIC);
+        replayStream.putShort(REPLAY_VERSION);
+        if (replayHashes != null) replayHashes.clear();
+    }
+
+    // Fills the frame with everything drawn in renderGame. Kinds: ship power-up flags (4 marks
+    // the wingman), shoot invader, boss health and effects, power-up type, blast animation frame.
+    private void captureEntities(EntityFrame frame) {
+        frame.clear();
+        frame.timeMillis = Math.round(gameTime * 1000);
+        frame.score = playerScore;
+        frame.lives = playerLives;
+        frame.add(EntityFrame.SHIPS, spaceship.x, spaceship.y, shipKind(spaceship));
+        if (versusMode) frame.add(EntityFrame.SHIPS, wingman.x, wingman.y, shipKind(wingman) | 4);
+        for (int i = 0; i < invader.rectangles.size; i++) {
+            Rectangle inv = invader.rectangles.get(i);
+            frame.add(EntityFrame.INVADERS, inv.x, inv.y, invader.isShootEnemy.get(i) ? 1 : 0);
+        }
+        if (boss.rectangle != null) {
+            frame.add(EntityFrame.BOSS, boss.rectangle.x, boss.rectangle.y,
+                boss.healthPoints << 2 | (boss.damageEffect ? 2 : 0) | (boss.isLaserActive ? 1 : 0));
+        }
+        for (Rectangle p : playerProjectiles.rectangles) frame.add(EntityFrame.PLAYER_SHOTS, p.x, p.y, 0);
+        for (Rectangle p : enemyProjectiles.rectangles) frame.add(EntityFrame.ENEMY_SHOTS, p.x, p.y, 0);
+        for (Rectangle p : powerup.rectangles) {
+            frame.add(EntityFrame.POWERUPS, p.x, p.y, p.height == powerup.height ? 0 : 1);
+        }
+        for (Explosion blast : blasts) {
+            frame.add(EntityFrame.BLASTS, blast.x, blast.y, Math.min(7, (int) (blast.timer / BLAST_DURATION * 8)));
+        }
+    }
+
+    private static int shipKind(Spaceship ship) {
+        return (ship.isShieldActive ? 1 : 0) | (ship.multiShotActive ? 2 : 0);
+    }
+
+    // Appends the current frame to the replay stream as a length-prefixed delta
+    private void recordReplayFrame() {
+        if (headless) return;
+        try {
+            captureEntities(replayFrame);
+            int maxSize = EntityDeltaCodec.maxEncodedSize(replayFrame);
+            if (replayScratch.capacity() < maxSize) {
+                replayScratch = ByteBuffer.allocate(Math.max(maxSize, replayScratch.capacity() * 2));
+            }
+            replayScratch.clear();
+            replayCodec.encode(replayFrame, replayScratch);
+            replayScratch.flip();
+            int needed = 5 + replayScratch.remaining();
+            if (replayStream.remaining() < needed) {
+                if (replayStream.capacity() >= REPLAY_MAX_BYTES) return;
+                ByteBuffer grown = ByteBuffer.allocate(Math.min(REPLAY_MAX_BYTES, replayStream.capacity() * 2));
+                replayStream.flip();
+                grown.put(replayStream);
+                replayStream = grown;
+                if (replayStream.remaining() < needed) return;
+            }
+            Varint.write(replayStream, replayScratch.remaining());
+            replayStream.put(replayScratch);
+            if (replayHashes != null) replayHashes.add(ReplayCheck.hash(replayFrame));
+        } catch (Exception e) {
+            Gdx.app.error("MainGame", "Error recording replay frame: " + e.getMessage(), e);
+        }
+    }
+
+    // The recorded buffer goes to the run history's writer thread as it is, instead of being
+    // copied or written here, and the next match records into a new one
+    private void writeReplay() {
+        try {
+            runHistory.writeFile(REPLAY_FILE, replayStream.array(), replayStream.position());
+            replayStream = ByteBuffer.allocate(REPLAY_INITIAL_BYTES);
+            if (replayHashes != null) {
+                IntArray recorded = replayHashes;
+                replayHashes = new IntArray();
+                runHistory.afterWrites(() -> checkReplay(recorded));
+            }
+        } catch (Exception e) {
+            Gdx.app.error("MainGame", "Error writing replay: " + e.getMessage(), e);
+        }
+    }
+
+    // Writer thread: reads the replay just written back from the file
+    private void checkReplay(IntArray recorded) {
+        try {
+            String problem = ReplayCheck.verify(Gdx.files.local(REPLAY_FILE).readBytes(), recorded);
+            if (problem == null) {
+                Gdx.app.log(ReplayCheck.TAG, "Replay read back, " + recorded.size + " frames match");
+            } else {
+                Gdx.app.error(ReplayCheck.TAG, "Replay does not match the recording: " + problem);
+            }
+        } catch (Exception e) {
+            Gdx.app.error(ReplayCheck.TAG, "Error reading replay back: " + e.getMessage(), e);
+        }
+    }
+
+    private void startVersusSession() {
+        versusSession = new RollbackSession(versusSimulation, new LoopbackChannel(VERSUS_LATENCY_MS, this::sampleWingmanInput));
+    }
+
     private void renderGame() {
         try {
             Gdx.app.log("MainGame", "Rendering game");
+            for (int i = 0; i < bunkers.size; i++) {
+                bunkers.get(i).flush();
+            }
+            // The scene may go to a scaled-down buffer; the HUD below is always drawn at native resolution
+            sceneViewport.apply();
+            spriteRenderer.setProjectionMatrix(sceneViewport.getCamera().combined);
+            resolutionScaler.begin(sceneViewport.getScreenWidth(), sceneViewport.getScreenHeight());
             spriteRenderer.begin();
-            spriteRenderer.draw(spaceBackdrop, 0, backdropYPosition, Gdx.graphics.getWidth(), Gdx.graphics.getHeight());
-            spriteRenderer.draw(spaceBackdrop, 0, backdropYPosition + Gdx.graphics.getHeight(), Gdx.graphics.getWidth(), Gdx.graphics.getHeight());
+            spaceBackdrop.draw(spriteRenderer, 0, 0, worldWidth, worldHeight);
+
+            for (Bunker bunker : bunkers) {
+                spriteRenderer.draw(bunker.getTexture(), bunker.bounds.x, bunker.bounds.y, bunker.bounds.width, bunker.bounds.height);
+            }
 
             for (Rectangle p : powerup.rectangles) {
                 spriteRenderer.draw(p.height == powerup.height ? powerupIcon : shieldIcon, p.x, p.y, p.width, p.height);
@@ -854,6 +1979,11 @@ public class MainGame extends ApplicationAdapter {
             }
 
             spriteRenderer.draw(spaceshipAnimation.getKeyFrame(animationTime, true), spaceship.x, spaceship.y, spaceship.width, spaceship.height);
+            if (versusMode) {
+                spriteRenderer.setColor(0.6f, 0.8f, 1f, 1f);
+                spriteRenderer.draw(spaceshipAnimation.getKeyFrame(animationTime, true), wingman.x, wingman.y, wingman.width, wingman.height);
+                spriteRenderer.setColor(1f, 1f, 1f, 1f);
+            }
 
             if (invader != null && invader.rectangles != null) {
                 for (int i = 0; i < invader.rectangles.size; i++) {
@@ -891,35 +2021,37 @@ public class MainGame extends ApplicationAdapter {
             }
 
             spriteRenderer.end();
+            resolutionScaler.end(spriteRenderer, gameStage.getCamera().combined, sceneViewport.getScreenX(), sceneViewport.getScreenY(),
+                sceneViewport.getScreenWidth(), sceneViewport.getScreenHeight());
 
+            gameStage.getViewport().apply();
+            gameStage.getBatch().setProjectionMatrix(gameStage.getCamera().combined);
             gameStage.getBatch().begin();
-            Label scoreDisplay = new Label("Score: " + playerScore, uiSkin);
-            scoreDisplay.setFontScale(3);
-            scoreDisplay.setPosition(30, Gdx.graphics.getHeight() - 60);
+            setLabelText(scoreDisplay, "Score: ", playerScore);
+            scoreDisplay.setPosition(30, gameStage.getHeight() - 60);
             scoreDisplay.draw(gameStage.getBatch(), 1);
+            if (endlessMode) {
+                setLabelText(waveDisplay, "Wave: ", waveNumber);
+                waveDisplay.setPosition(30, gameStage.getHeight() - 110);
+                waveDisplay.draw(gameStage.getBatch(), 1);
+            }
 
-            float livesX = Gdx.graphics.getWidth() - 250;
-            float livesY = Gdx.graphics.getHeight() - 60;
-            Label livesDisplay = new Label("Lives: " + playerLives, uiSkin);
-            livesDisplay.setFontScale(3);
+            float livesX = gameStage.getWidth() - 250;
+            float livesY = gameStage.getHeight() - 60;
+            setLabelText(livesDisplay, "Lives: ", playerLives);
             livesDisplay.setPosition(livesX, livesY);
             livesDisplay.draw(gameStage.getBatch(), 1);
 
             if (spaceship.multiShotActive) {
-                Label multiShotLabel = new Label("MULTI-SHOT!", uiSkin);
-                multiShotLabel.setFontScale(3);
                 multiShotLabel.setPosition(livesX, livesY - 50);
                 multiShotLabel.draw(gameStage.getBatch(), 1);
             }
             if (spaceship.isShieldActive) {
-                Label shieldLabel = new Label("SHIELD!", uiSkin);
-                shieldLabel.setFontScale(3);
                 shieldLabel.setPosition(livesX, livesY - (spaceship.multiShotActive ? 100 : 50));
                 shieldLabel.draw(gameStage.getBatch(), 1);
             }
             if (currentPhase == GamePhase.FINAL_BOSS) {
-                Label bossHealthDisplay = new Label("Boss HP: " + boss.healthPoints, uiSkin);
-                bossHealthDisplay.setFontScale(3);
+                setLabelText(bossHealthDisplay, "Boss HP: ", boss.healthPoints);
                 bossHealthDisplay.setPosition(livesX - 50, livesY - (spaceship.multiShotActive ? 100 : 50));
                 bossHealthDisplay.draw(gameStage.getBatch(), 1);
             }
@@ -932,240 +2064,471 @@ public class MainGame extends ApplicationAdapter {
     @Override
     public void render() {
         try {
+            int firstFrame = startupProfiler.begin("first render"); // -1 after the first frame, or when not profiling
             float delta = Gdx.graphics.getDeltaTime();
+            // Menus render on demand, so the first frame of play after Start, Resume or Continue
+            // would see all the time since the last requested frame, e.g. how long the button was
+            // held. Until continuous rendering is back on, a frame steps at most one capped frame.
+            if (!Gdx.graphics.isContinuousRendering()) delta = Math.min(delta, 1f / FRAME_CAPS[frameCapIndex]);
             Gdx.gl.glClearColor(0, 0, 0, 1);
             Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
 
+            // Menu backdrops and overlays cover the whole window, in screen coordinates
+            gameStage.getViewport().apply();
+            spriteRenderer.setProjectionMatrix(gameStage.getCamera().combined);
             spriteRenderer.begin();
-            if (currentPhase == GamePhase.MAIN_MENU || currentPhase == GamePhase.SETTINGS ||
-                currentPhase == GamePhase.VICTORY || currentPhase == GamePhase.DEFEAT) {
-                spriteRenderer.draw(menuBackdrop, 0, 0, Gdx.graphics.getWidth(), Gdx.graphics.getHeight());
+            boolean menuPhase = currentPhase == GamePhase.MAIN_MENU || currentPhase == GamePhase.SETTINGS ||
+                currentPhase == GamePhase.VICTORY || currentPhase == GamePhase.DEFEAT;
+            if (currentPhase != GamePhase.PAUSED) setMenuBackdropLoaded(menuPhase);
+            if (menuPhase) {
+                if (menuBackdrop != null) spriteRenderer.draw(menuBackdrop, 0, 0, gameStage.getWidth(), gameStage.getHeight());
             } else if (currentPhase == GamePhase.PAUSED) {
-                spriteRenderer.end();
-                renderGame();
-                spriteRenderer.begin();
-                spriteRenderer.draw(pauseScreen, 0, 0, Gdx.graphics.getWidth(), Gdx.graphics.getHeight());
+                // An opaque overlay hides the frozen scene completely, so it is not drawn
+                if (!pauseScreenOpaque) {
+                    spriteRenderer.end();
+                    renderGame();
+                    spriteRenderer.setProjectionMatrix(gameStage.getCamera().combined);
+                    spriteRenderer.begin();
+                }
+                spriteRenderer.draw(pauseScreen, 0, 0, gameStage.getWidth(), gameStage.getHeight());
             }
             spriteRenderer.end();
 
             if (currentPhase == GamePhase.ACTIVE || currentPhase == GamePhase.FINAL_BOSS) {
-                updateGame(delta);
+                resolutionScaler.update(delta);
+                if (versusSession != null) {
+                    versusSession.update(delta);
+                } else {
+                    updateGame(delta);
+                }
+                recordReplayFrame();
+                projectileBudget.update(delta);
                 renderGame();
             }
 
+            gameStage.getViewport().apply();
             gameStage.act(delta);
             gameStage.draw();
+            updateFramePacing();
+            if (firstFrame >= 0) {
+                startupProfiler.end(firstFrame);
+                startupProfiler.finish();
+            }
         } catch (Exception e) {
             Gdx.app.error("MainGame", "Error in render: " + e.getMessage(), e);
         }
     }
 
-    private void displayMainMenu() {
-        try {
-            Gdx.app.log("MainGame", "Displaying main menu");
-            Gdx.input.setInputProcessor(gameStage);
-            gameStage.clear();
-            gameTrack.stop();
-            menuTrack.play();
+    // Only active play animates continuously. Menus, settings, pause and the end screens are
+    // redrawn on input (which requests a frame by itself) or while a UI action is running.
+    private void updateFramePacing() {
+        boolean playing = currentPhase == GamePhase.ACTIVE || currentPhase == GamePhase.FINAL_BOSS;
+        if (Gdx.graphics.isContinuousRendering() != playing) {
+            Gdx.app.log("MainGame", "Continuous rendering: " + playing);
+            Gdx.graphics.setContinuousRendering(playing);
+            if (playing) Gdx.graphics.setForegroundFPS(FRAME_CAPS[frameCapIndex]);
+            // The frame that ended play still drew the game scene; the next screen needs one more
+            if (!playing) Gdx.graphics.requestRendering();
+        }
+        if (!playing && hasActions(gameStage.getRoot())) {
+            Gdx.graphics.requestRendering();
+        }
+        if (playing && Gdx.app.getType() == Application.ApplicationType.Android) paceFrame();
+    }
 
-            Table menuTable = new Table();
-            menuTable.setFillParent(true);
-            menuTable.padTop(450);
-            menuTable.setBackground(uiSkin.newDrawable("default-pane", new Color(0.1f, 0.1f, 0.1f, 0.7f)));
-
-            TextButton startGameButton = new TextButton("Start Game", uiSkin);
-            startGameButton.getLabel().setFontScale(UI_FONT_SCALE);
-            startGameButton.pad(20);
-            TextButton settingsButton = new TextButton("Settings", uiSkin);
-            settingsButton.getLabel().setFontScale(UI_FONT_SCALE);
-            settingsButton.pad(20);
-
-            startGameButton.addListener(new ClickListener() {
-                @Override
-                public void clicked(InputEvent event, float x, float y) {
-                    Gdx.app.log("MainGame", "Start Game clicked");
-                    currentPhase = GamePhase.ACTIVE;
-                    backdropYPosition = 0;
-                    powerupCollectedSound.play(soundLevel);
-                    initializeGame();
-                }
-                @Override
-                public void enter(InputEvent event, float x, float y, int pointer, com.badlogic.gdx.scenes.scene2d.Actor fromActor) {
-                    startGameButton.setColor(1, 1, 0.8f, 1);
-                    startGameButton.setScale(1.05f);
-                }
-                @Override
-                public void exit(InputEvent event, float x, float y, int pointer, com.badlogic.gdx.scenes.scene2d.Actor toActor) {
-                    startGameButton.setColor(1, 1, 1, 1);
-                    startGameButton.setScale(1.0f);
-                }
-            });
+    // The Android backend ignores setForegroundFPS and renders at the display rate, so play
+    // frames are held back here until the frame cap allows the next one
+    private void paceFrame() {
+        long frame = 1_000_000_000L / FRAME_CAPS[frameCapIndex];
+        long now = System.nanoTime();
+        long wait = nextFrameNanos - now;
+        if (wait > 0 && wait <= frame) {
+            try {
+                Thread.sleep(wait / 1_000_000L, (int) (wait % 1_000_000L));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            nextFrameNanos += frame;
+        } else {
+            nextFrameNanos = now + frame;
+        }
+    }
 
-            settingsButton.addListener(new ClickListener() {
-                @Override
-                public void clicked(InputEvent event, float x, float y) {
-                    Gdx.app.log("MainGame", "Settings clicked");
-                    currentPhase = GamePhase.SETTINGS;
-                    powerupCollectedSound.play(soundLevel);
-                    displaySettings();
-                }
-                @Override
-                public void enter(InputEvent event, float x, float y, int pointer, com.badlogic.gdx.scenes.scene2d.Actor fromActor) {
-                    settingsButton.setColor(1, 1, 0.8f, 1);
-                    settingsButton.setScale(1.05f);
-                }
-                @Override
-                public void exit(InputEvent event, float x, float y, int pointer, com.badlogic.gdx.scenes.scene2d.Actor toActor) {
-                    settingsButton.setColor(1, 1, 1, 1);
-                    settingsButton.setScale(1.0f);
-                }
-            });
+    private boolean hasActions(Actor actor) {
+        if (actor.hasActions()) return true;
+        if (actor instanceof Group) {
+            SnapshotArray<Actor> children = ((Group) actor).getChildren();
+            for (int i = 0; i < children.size; i++) {
+                if (children.get(i).isVisible() && hasActions(children.get(i))) return true;
+            }
+        }
+        return false;
+    }
 
-            menuTable.add(startGameButton).width(600).height(100).padBottom(50).row();
-            menuTable.add(settingsButton).width(600).height(100).row();
-            gameStage.addActor(menuTable);
+    @Override
+    public void pause() {
+        try {
+            Gdx.app.log("MainGame", "Application paused");
+            if (currentPhase == GamePhase.ACTIVE || currentPhase == GamePhase.FINAL_BOSS) {
+                currentPhase = GamePhase.PAUSED;
+                displayPauseMenu();
+            }
+            if (currentPhase == GamePhase.PAUSED) {
+                writeQuickSave();
+            }
+            gameTrack.pause();
+            menuTrack.pause();
         } catch (Exception e) {
-            Gdx.app.error("MainGame", "Error displaying main menu: " + e.getMessage(), e);
+            Gdx.app.error("MainGame", "Error pausing: " + e.getMessage(), e);
         }
     }
 
-    private void createPauseButton() {
+    @Override
+    public void resume() {
         try {
-            Gdx.app.log("MainGame", "Creating pause button");
-            TextButton pauseButton = new TextButton("Pause", uiSkin);
-            pauseButton.getLabel().setFontScale(2);
-            pauseButton.pad(15);
+            Gdx.app.log("MainGame", "Application resumed");
+            // The game stays on the pause menu; only menu screens get their music back
+            if (currentPhase == GamePhase.MAIN_MENU || currentPhase == GamePhase.SETTINGS ||
+                currentPhase == GamePhase.VICTORY || currentPhase == GamePhase.DEFEAT) {
+                menuTrack.play();
+            }
+            Gdx.graphics.requestRendering();
+        } catch (Exception e) {
+            Gdx.app.error("MainGame", "Error resuming: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void resize(int width, int height) {
+        try {
+            Gdx.app.log("MainGame", "Resizing to " + width + "x" + height);
+            sceneViewport.update(width, height, true);
+            worldWidth = sceneViewport.getWorldWidth();
+            worldHeight = sceneViewport.getWorldHeight();
+            gameStage.getViewport().update(width, height, true);
+            if (pauseButton != null) positionPauseButton();
+            Gdx.graphics.requestRendering();
+        } catch (Exception e) {
+            Gdx.app.error("MainGame", "Error resizing: " + e.getMessage(), e);
+        }
+    }
+
+    private void buildScreens() {
+        Gdx.app.log("MainGame", "Building UI screens");
+        try {
+            // Registered with the skin, which owns the texture it draws from
+            Drawable paneBackground = uiSkin.newDrawable("default-pane", new Color(0.1f, 0.1f, 0.1f, 0.7f));
+            uiSkin.add("menu-pane", paneBackground, Drawable.class);
+
+            // Main menu
+            mainMenuTable = new Table();
+            mainMenuTable.setFillParent(true);
+            mainMenuTable.padTop(450);
+            mainMenuTable.setBackground(paneBackground);
+            TextButton startGameButton = createMenuButton("Start Game", UI_FONT_SCALE, 20, () -> {
+                Gdx.app.log("MainGame", "Start Game clicked");
+                currentPhase = GamePhase.ACTIVE;
+                spaceBackdrop.reset();
+                powerupCollectedSound.play(soundLevel);
+                versusMode = false;
+                endlessMode = false;
+                versusSession = null;
+                initializeGame();
+            });
+            TextButton endlessButton = createMenuButton("Endless", UI_FONT_SCALE, 20, () -> {
+                Gdx.app.log("MainGame", "Endless clicked");
+                currentPhase = GamePhase.ACTIVE;
+                spaceBackdrop.reset();
+                powerupCollectedSound.play(soundLevel);
+                versusMode = false;
+                endlessMode = true;
+                versusSession = null;
+                initializeGame();
+            });
+            TextButton versusButton = createMenuButton("Versus", UI_FONT_SCALE, 20, () -> {
+                Gdx.app.log("MainGame", "Versus clicked");
+                currentPhase = GamePhase.ACTIVE;
+                spaceBackdrop.reset();
+                powerupCollectedSound.play(soundLevel);
+                versusMode = true;
+                endlessMode = false;
+                initializeGame();
+                startVersusSession();
+            });
+            TextButton settingsButton = createMenuButton("Settings", UI_FONT_SCALE, 20, () -> {
+                Gdx.app.log("MainGame", "Settings clicked");
+                currentPhase = GamePhase.SETTINGS;
+                powerupCollectedSound.play(soundLevel);
+                displaySettings();
+            });
+            bestScoreLabel = createLabel("Best: 0");
+            mainMenuTable.add(bestScoreLabel).padBottom(20).row();
+            topRunsLabel = createHudLabel("");
+            mainMenuTable.add(topRunsLabel).padBottom(50).row();
+            continueButton = createMenuButton("Continue", UI_FONT_SCALE, 20, () -> {
+                Gdx.app.log("MainGame", "Continue clicked");
+                powerupCollectedSound.play(soundLevel);
+                continueFromQuickSave();
+            });
+            mainMenuTable.add(continueButton).width(600).height(100).padBottom(50).row();
+            mainMenuTable.add(startGameButton).width(600).height(100).padBottom(50).row();
+            mainMenuTable.add(endlessButton).width(600).height(100).padBottom(50).row();
+            mainMenuTable.add(versusButton).width(600).height(100).padBottom(50).row();
+            mainMenuTable.add(settingsButton).width(600).height(100).row();
+
+            // In-game pause button
+            pauseButton = createMenuButton("Pause", 2, 15, () -> {
+                Gdx.app.log("MainGame", "Pause button clicked");
+                currentPhase = GamePhase.PAUSED;
+                powerupCollectedSound.play(soundLevel);
+                displayPauseMenu();
+            });
             pauseButton.setSize(250, 60);
-            pauseButton.setPosition(Gdx.graphics.getWidth() / 2f - pauseButton.getWidth() / 2f, Gdx.graphics.getHeight() - pauseButton.getHeight() - 20);
-            pauseButton.addListener(new ClickListener() {
-                @Override
-                public void clicked(InputEvent event, float x, float y) {
-                    Gdx.app.log("MainGame", "Pause button clicked");
-                    currentPhase = GamePhase.PAUSED;
-                    powerupCollectedSound.play(soundLevel);
-                    displayPauseMenu();
-                }
-                @Override
-                public void enter(InputEvent event, float x, float y, int pointer, com.badlogic.gdx.scenes.scene2d.Actor fromActor) {
-                    pauseButton.setColor(1, 1, 0.8f, 1);
-                    pauseButton.setScale(1.05f);
-                }
-                @Override
-                public void exit(InputEvent event, float x, float y, int pointer, com.badlogic.gdx.scenes.scene2d.Actor toActor) {
-                    pauseButton.setColor(1, 1, 1, 1);
-                    pauseButton.setScale(1.0f);
-                }
+            positionPauseButton();
+
+            // Pause menu
+            pauseMenuTable = new Table();
+            pauseMenuTable.setFillParent(true);
+            pauseMenuTable.padTop(100);
+            pauseMenuTable.setBackground(paneBackground);
+            pauseMusicSlider = createVolumeSlider(true);
+            pauseSoundSlider = createVolumeSlider(false);
+            TextButton resumeButton = createMenuButton("Resume", UI_FONT_SCALE, 20, () -> {
+                Gdx.app.log("MainGame", "Resume button clicked");
+                currentPhase = (boss.rectangle != null && boss.healthPoints > 0) ? GamePhase.FINAL_BOSS : GamePhase.ACTIVE;
+                powerupCollectedSound.play(soundLevel);
+                gameTrack.play();
+                showScreen(pauseButton);
+                setupInput();
+            });
+            TextButton mainMenuButton = createMenuButton("Main Menu", UI_FONT_SCALE, 20, () -> {
+                Gdx.app.log("MainGame", "Main Menu button clicked");
+                deleteQuickSave();
+                currentPhase = GamePhase.MAIN_MENU;
+                powerupCollectedSound.play(soundLevel);
+                playerProjectiles.clear();
+                enemyProjectiles.clear();
+                powerup.rectangles.clear();
+                blasts.clear();
+                boss.rectangle = null;
+                Gdx.input.setInputProcessor(gameStage);
+                displayMainMenu();
+            });
+            pauseMenuTable.add(createLabel("Paused")).padBottom(50).row();
+            pauseMenuTable.add(createLabel("Music Volume")).padBottom(20).row();
+            pauseMenuTable.add(pauseMusicSlider).width(600).height(25).padBottom(25).row();
+            pauseMenuTable.add(createLabel("Sound Effects")).padBottom(20).row();
+            pauseMenuTable.add(pauseSoundSlider).width(600).height(25).padBottom(25).row();
+            pauseMenuTable.add(resumeButton).width(600).height(100).padBottom(25).row();
+            pauseMenuTable.add(mainMenuButton).width(600).height(100).row();
+
+            // Settings
+            settingsTable = new Table();
+            settingsTable.setFillParent(true);
+            settingsTable.padTop(100);
+            settingsTable.setBackground(paneBackground);
+            settingsMusicSlider = createVolumeSlider(true);
+            settingsSoundSlider = createVolumeSlider(false);
+            frameCapButton = createMenuButton("Frame Cap: " + FRAME_CAPS[frameCapIndex], UI_FONT_SCALE, 20, () -> {
+                frameCapIndex = (frameCapIndex + 1) % FRAME_CAPS.length;
+                resolutionScaler.setFrameCap(FRAME_CAPS[frameCapIndex]);
+                powerupCollectedSound.play(soundLevel);
+                setLabelText(frameCapButton.getLabel(), "Frame Cap: ", FRAME_CAPS[frameCapIndex]);
+            });
+            bulletCapButton = createMenuButton("Bullet Cap: " + projectileBudget.getLimit(), UI_FONT_SCALE, 20, () -> {
+                int next = 0;
+                while (next < ProjectileBudget.LIMITS.length && ProjectileBudget.LIMITS[next] <= projectileBudget.getLimit()) next++;
+                projectileBudget.setLimit(ProjectileBudget.LIMITS[next % ProjectileBudget.LIMITS.length]);
+                powerupCollectedSound.play(soundLevel);
+                setLabelText(bulletCapButton.getLabel(), "Bullet Cap: ", projectileBudget.getLimit());
+            });
+            cullPolicyButton = createMenuButton("Cull: " + cullPolicyName(), UI_FONT_SCALE, 20, () -> {
+                ProjectileBudget.Policy[] policies = ProjectileBudget.Policy.values();
+                projectileBudget.setPolicy(policies[(projectileBudget.getPolicy().ordinal() + 1) % policies.length]);
+                powerupCollectedSound.play(soundLevel);
+                cullPolicyButton.getLabel().setText("Cull: " + cullPolicyName());
+            });
+            TextButton settingsBackButton = createMenuButton("Back", UI_FONT_SCALE, 20, () -> {
+                Gdx.app.log("MainGame", "Settings back button clicked");
+                currentPhase = GamePhase.MAIN_MENU;
+                powerupCollectedSound.play(soundLevel);
+                displayMainMenu();
+            });
+            settingsTable.add(createLabel("Settings")).padBottom(75).row();
+            settingsTable.add(createLabel("Music Volume")).padBottom(20).row();
+            settingsTable.add(settingsMusicSlider).width(600).height(25).padBottom(25).row();
+            settingsTable.add(createLabel("Sound Effects")).padBottom(20).row();
+            settingsTable.add(settingsSoundSlider).width(600).height(25).padBottom(25).row();
+            settingsTable.add(frameCapButton).width(600).height(100).padBottom(25).row();
+            settingsTable.add(bulletCapButton).width(600).height(100).padBottom(25).row();
+            settingsTable.add(cullPolicyButton).width(600).height(100).padBottom(25).row();
+            settingsTable.add(settingsBackButton).width(600).height(100).row();
+
+            // Victory
+            victoryTable = new Table();
+            victoryTable.setFillParent(true);
+            victoryTable.padTop(200);
+            victoryTable.setBackground(paneBackground);
+            victoryScoreLabel = createLabel("Score: 0");
+            TextButton victoryBackButton = createMenuButton("Back", UI_FONT_SCALE, 20, () -> {
+                Gdx.app.log("MainGame", "Victory back button clicked");
+                currentPhase = GamePhase.MAIN_MENU;
+                powerupCollectedSound.play(soundLevel);
+                displayMainMenu();
+            });
+            victoryTable.add(victoryScoreLabel).padBottom(40).row();
+            victoryTable.add(createLabel("Victory!")).padBottom(100).row();
+            victoryTable.add(victoryBackButton).width(600).height(100).row();
+
+            // Defeat
+            defeatTable = new Table();
+            defeatTable.setFillParent(true);
+            defeatTable.padTop(200);
+            defeatTable.setBackground(paneBackground);
+            defeatScoreLabel = createLabel("Score: 0");
+            TextButton defeatBackButton = createMenuButton("Back", UI_FONT_SCALE, 20, () -> {
+                Gdx.app.log("MainGame", "Defeat back button clicked");
+                currentPhase = GamePhase.MAIN_MENU;
+                powerupCollectedSound.play(soundLevel);
+                displayMainMenu();
             });
-            gameStage.addActor(pauseButton);
+            defeatTable.add(defeatScoreLabel).padBottom(40).row();
+            defeatTable.add(createLabel("Game Over!")).padBottom(100).row();
+            defeatTable.add(defeatBackButton).width(600).height(100).row();
+
+            // HUD labels, drawn by renderGame and updated in place
+            scoreDisplay = createHudLabel("Score: 0");
+            livesDisplay = createHudLabel("Lives: 0");
+            multiShotLabel = createHudLabel("MULTI-SHOT!");
+            shieldLabel = createHudLabel("SHIELD!");
+            bossHealthDisplay = createHudLabel("Boss HP: 0");
+            waveDisplay = createHudLabel("Wave: 0");
+
+            screens = new Actor[] { mainMenuTable, pauseButton, pauseMenuTable, settingsTable, victoryTable, defeatTable };
+            for (Actor screen : screens) {
+                screen.setVisible(false);
+                gameStage.addActor(screen);
+            }
         } catch (Exception e) {
-            Gdx.app.error("MainGame", "Error creating pause button: " + e.getMessage(), e);
+            Gdx.app.error("MainGame", "Error building UI screens: " + e.getMessage(), e);
+            throw e;
         }
     }
 
-    private void displayPauseMenu() {
-        try {
-            Gdx.app.log("MainGame", "Displaying pause menu");
-            if (currentPhase == GamePhase.ACTIVE || currentPhase == GamePhase.FINAL_BOSS) {
-                gameTrack.pause();
+    private void positionPauseButton() {
+        pauseButton.setPosition(gameStage.getWidth() / 2f - pauseButton.getWidth() / 2f, gameStage.getHeight() - pauseButton.getHeight() - 20);
+    }
+
+    private TextButton createMenuButton(String text, float fontScale, float padding, Runnable onClick) {
+        TextButton button = new TextButton(text, uiSkin);
+        button.getLabel().setFontScale(fontScale);
+        button.pad(padding);
+        button.addListener(new ClickListener() {
+            @Override
+            public void clicked(InputEvent event, float x, float y) {
+                onClick.run();
+            }
+            @Override
+            public void enter(InputEvent event, float x, float y, int pointer, Actor fromActor) {
+                button.setColor(1, 1, 0.8f, 1);
+                button.setScale(1.05f);
+            }
+            @Override
+            public void exit(InputEvent event, float x, float y, int pointer, Actor toActor) {
+                button.setColor(1, 1, 1, 1);
+                button.setScale(1.0f);
             }
-            gameStage.clear();
-            Table pauseTable = new Table();
-            pauseTable.setFillParent(true);
-            pauseTable.padTop(100);
-            pauseTable.setBackground(uiSkin.newDrawable("default-pane", new Color(0.1f, 0.1f, 0.1f, 0.7f)));
-
-            Label pauseTitle = new Label("Paused", uiSkin);
-            pauseTitle.setFontScale(UI_FONT_SCALE);
-            Label musicVolumeLabel = new Label("Music Volume", uiSkin);
-            musicVolumeLabel.setFontScale(UI_FONT_SCALE);
-            Slider musicVolumeSlider = new Slider(0f, 1f, 0.01f, false, uiSkin);
-            musicVolumeSlider.setValue(musicLevel);
-            musicVolumeSlider.addListener(new ChangeListener() {
-                @Override
-                public void changed(ChangeEvent event, com.badlogic.gdx.scenes.scene2d.Actor actor) {
-                    musicLevel = musicVolumeSlider.getValue();
+        });
+        return button;
+    }
+
+    private Slider createVolumeSlider(boolean music) {
+        Slider slider = new Slider(0f, 1f, 0.01f, false, uiSkin);
+        slider.setValue(music ? musicLevel : soundLevel);
+        slider.addListener(new ChangeListener() {
+            @Override
+            public void changed(ChangeEvent event, Actor actor) {
+                if (music) {
+                    musicLevel = slider.getValue();
                     menuTrack.setVolume(musicLevel);
                     gameTrack.setVolume(musicLevel);
+                } else {
+                    soundLevel = slider.getValue();
                 }
-            });
-            Label soundVolumeLabel = new Label("Sound Effects", uiSkin);
-            soundVolumeLabel.setFontScale(UI_FONT_SCALE);
-            Slider soundVolumeSlider = new Slider(0f, 1f, 0.01f, false, uiSkin);
-            soundVolumeSlider.setValue(soundLevel);
-            soundVolumeSlider.addListener(new ChangeListener() {
-                @Override
-                public void changed(ChangeEvent event, com.badlogic.gdx.scenes.scene2d.Actor actor) {
-                    soundLevel = soundVolumeSlider.getValue();
-                }
-            });
-            TextButton resumeButton = new TextButton("Resume", uiSkin);
-            resumeButton.getLabel().setFontScale(UI_FONT_SCALE);
-            resumeButton.pad(20);
-            TextButton mainMenuButton = new TextButton("Main Menu", uiSkin);
-            mainMenuButton.getLabel().setFontScale(UI_FONT_SCALE);
-            mainMenuButton.pad(20);
-
-            resumeButton.addListener(new ClickListener() {
-                @Override
-                public void clicked(InputEvent event, float x, float y) {
-                    Gdx.app.log("MainGame", "Resume button clicked");
-                    currentPhase = (boss.rectangle != null && boss.healthPoints > 0) ? GamePhase.FINAL_BOSS : GamePhase.ACTIVE;
-                    powerupCollectedSound.play(soundLevel);
-                    gameTrack.play();
-                    gameStage.clear();
-                    createPauseButton();
-                    setupInput();
-                }
-                @Override
-                public void enter(InputEvent event, float x, float y, int pointer, com.badlogic.gdx.scenes.scene2d.Actor fromActor) {
-                    resumeButton.setColor(1, 1, 0.8f, 1);
-                    resumeButton.setScale(1.05f);
-                }
-                @Override
-                public void exit(InputEvent event, float x, float y, int pointer, com.badlogic.gdx.scenes.scene2d.Actor toActor) {
-                    resumeButton.setColor(1, 1, 1, 1);
-                    resumeButton.setScale(1.0f);
-                }
-            });
+            }
+        });
+        return slider;
+    }
 
-            mainMenuButton.addListener(new ClickListener() {
-                @Override
-                public void clicked(InputEvent event, float x, float y) {
-                    Gdx.app.log("MainGame", "Main Menu button clicked");
-                    currentPhase = GamePhase.MAIN_MENU;
-                    powerupCollectedSound.play(soundLevel);
-                    playerProjectiles.rectangles.clear();
-                    playerProjectiles.velocityX.clear();
-                    playerProjectiles.velocityY.clear();
-                    enemyProjectiles.rectangles.clear();
-                    enemyProjectiles.velocityX.clear();
-                    enemyProjectiles.velocityY.clear();
-                    powerup.rectangles.clear();
-                    blasts.clear();
-                    boss.rectangle = null;
-                    Gdx.input.setInputProcessor(gameStage);
-                    displayMainMenu();
-                }
-                @Override
-                public void enter(InputEvent event, float x, float y, int pointer, com.badlogic.gdx.scenes.scene2d.Actor fromActor) {
-                    mainMenuButton.setColor(1, 1, 0.8f, 1);
-                    mainMenuButton.setScale(1.05f);
-                }
-                @Override
-                public void exit(InputEvent event, float x, float y, int pointer, com.badlogic.gdx.scenes.scene2d.Actor toActor) {
-                    mainMenuButton.setColor(1, 1, 1, 1);
-                    mainMenuButton.setScale(1.0f);
-                }
-            });
+    private Label createLabel(String text) {
+        Label label = new Label(text, uiSkin);
+        label.setFontScale(UI_FONT_SCALE);
+        return label;
+    }
 
-            pauseTable.add(pauseTitle).padBottom(50).row();
-            pauseTable.add(musicVolumeLabel).padBottom(20).row();
-            pauseTable.add(musicVolumeSlider).width(600).height(25).padBottom(25).row();
-            pauseTable.add(soundVolumeLabel).padBottom(20).row();
-            pauseTable.add(soundVolumeSlider).width(600).height(25).padBottom(25).row();
-            pauseTable.add(resumeButton).width(600).height(100).padBottom(25).row();
-            pauseTable.add(mainMenuButton).width(600).height(100).row();
-            gameStage.addActor(pauseTable);
+    private Label createHudLabel(String text) {
+        Label label = new Label(text, uiSkin);
+        label.setFontScale(3);
+        return label;
+    }
+
+    private String cullPolicyName() {
+        switch (projectileBudget.getPolicy()) {
+            case OLDEST: return "Oldest";
+            case FARTHEST: return "Farthest";
+            default: return "Receding";
+        }
+    }
+
+    // Writes prefix + value into a label without allocating a new String
+    private void setLabelText(Label label, String prefix, int value) {
+        labelText.setLength(0);
+        labelText.append(prefix).append(value);
+        label.setText(labelText);
+    }
+
+    // One line per run of the top table: rank, score, kills and how long the run lasted
+    private void setTopRunsText(RunHistory.Run[] runs) {
+        labelText.setLength(0);
+        for (int i = 0; i < runs.length; i++) {
+            int seconds = (int) runs[i].duration;
+            if (i > 0) labelText.append('\n');
+            labelText.append(i + 1).append(".  ").append(runs[i].score)
+                .append("   ").append(runs[i].kills).append(" kills   ")
+                .append(seconds / 60).append(seconds % 60 < 10 ? ":0" : ":").append(seconds % 60);
+        }
+        topRunsLabel.setText(labelText);
+    }
+
+    private void showScreen(Actor visibleScreen) {
+        for (Actor screen : screens) {
+            screen.setVisible(screen == visibleScreen);
+        }
+    }
+
+    private void displayMainMenu() {
+        try {
+            Gdx.app.log("MainGame", "Displaying main menu");
+            Gdx.input.setInputProcessor(gameStage);
+            gameTrack.stop();
+            menuTrack.play();
+            runHistory.requestTopScores();
+            continueButton.setVisible(Gdx.files.local(QUICK_SAVE_FILE).exists());
+            showScreen(mainMenuTable);
+        } catch (Exception e) {
+            Gdx.app.error("MainGame", "Error displaying main menu: " + e.getMessage(), e);
+        }
+    }
+
+    private void displayPauseMenu() {
+        try {
+            Gdx.app.log("MainGame", "Displaying pause menu");
+            if (currentPhase == GamePhase.ACTIVE || currentPhase == GamePhase.FINAL_BOSS) {
+                gameTrack.pause();
+            }
+            pauseMusicSlider.setValue(musicLevel);
+            pauseSoundSlider.setValue(soundLevel);
+            showScreen(pauseMenuTable);
         } catch (Exception e) {
             Gdx.app.error("MainGame", "Error displaying pause menu: " + e.getMessage(), e);
         }
@@ -1174,67 +2537,9 @@ public class MainGame extends ApplicationAdapter {
     private void displaySettings() {
         try {
             Gdx.app.log("MainGame", "Displaying settings");
-            gameStage.clear();
-            Table settingsTable = new Table();
-            settingsTable.setFillParent(true);
-            settingsTable.padTop(100);
-            settingsTable.setBackground(uiSkin.newDrawable("default-pane", new Color(0.1f, 0.1f, 0.1f, 0.7f)));
-
-            Label settingsTitle = new Label("Settings", uiSkin);
-            settingsTitle.setFontScale(UI_FONT_SCALE);
-            Label musicVolumeLabel = new Label("Music Volume", uiSkin);
-            musicVolumeLabel.setFontScale(UI_FONT_SCALE);
-            Slider musicVolumeSlider = new Slider(0f, 1f, 0.01f, false, uiSkin);
-            musicVolumeSlider.setValue(musicLevel);
-            musicVolumeSlider.addListener(new ChangeListener() {
-                @Override
-                public void changed(ChangeEvent event, com.badlogic.gdx.scenes.scene2d.Actor actor) {
-                    musicLevel = musicVolumeSlider.getValue();
-                    menuTrack.setVolume(musicLevel);
-                    gameTrack.setVolume(musicLevel);
-                }
-            });
-            Label soundVolumeLabel = new Label("Sound Effects", uiSkin);
-            soundVolumeLabel.setFontScale(UI_FONT_SCALE);
-            Slider soundVolumeSlider = new Slider(0f, 1f, 0.01f, false, uiSkin);
-            soundVolumeSlider.setValue(soundLevel);
-            soundVolumeSlider.addListener(new ChangeListener() {
-                @Override
-                public void changed(ChangeEvent event, com.badlogic.gdx.scenes.scene2d.Actor actor) {
-                    soundLevel = soundVolumeSlider.getValue();
-                }
-            });
-            TextButton backButton = new TextButton("Back", uiSkin);
-            backButton.getLabel().setFontScale(UI_FONT_SCALE);
-            backButton.pad(20);
-
-            backButton.addListener(new ClickListener() {
-                @Override
-                public void clicked(InputEvent event, float x, float y) {
-                    Gdx.app.log("MainGame", "Settings back button clicked");
-                    currentPhase = GamePhase.MAIN_MENU;
-                    powerupCollectedSound.play(soundLevel);
-                    displayMainMenu();
-                }
-                @Override
-                public void enter(InputEvent event, float x, float y, int pointer, com.badlogic.gdx.scenes.scene2d.Actor fromActor) {
-                    backButton.setColor(1, 1, 0.8f, 1);
-                    backButton.setScale(1.05f);
-                }
-                @Override
-                public void exit(InputEvent event, float x, float y, int pointer, com.badlogic.gdx.scenes.scene2d.Actor toActor) {
-                    backButton.setColor(1, 1, 1, 1);
-                    backButton.setScale(1.0f);
-                }
-            });
-
-            settingsTable.add(settingsTitle).padBottom(75).row();
-            settingsTable.add(musicVolumeLabel).padBottom(20).row();
-            settingsTable.add(musicVolumeSlider).width(600).height(25).padBottom(25).row();
-            settingsTable.add(soundVolumeLabel).padBottom(20).row();
-            settingsTable.add(soundVolumeSlider).width(600).height(25).padBottom(25).row();
-            settingsTable.add(backButton).width(600).height(100).row();
-            gameStage.addActor(settingsTable);
+            settingsMusicSlider.setValue(musicLevel);
+            settingsSoundSlider.setValue(soundLevel);
+            showScreen(settingsTable);
         } catch (Exception e) {
             Gdx.app.error("MainGame", "Error displaying settings: " + e.getMessage(), e);
         }
@@ -1248,45 +2553,11 @@ public class MainGame extends ApplicationAdapter {
             spaceship.multiShotDuration = 0f;
             gameTrack.stop();
             menuTrack.play();
-            gameStage.clear();
-
-            Table victoryTable = new Table();
-            victoryTable.setFillParent(true);
-            victoryTable.padTop(200);
-            victoryTable.setBackground(uiSkin.newDrawable("default-pane", new Color(0.1f, 0.1f, 0.1f, 0.7f)));
-
-            Label scoreLabel = new Label("Score: " + playerScore, uiSkin);
-            scoreLabel.setFontScale(UI_FONT_SCALE);
-            Label victoryLabel = new Label("Victory!", uiSkin);
-            victoryLabel.setFontScale(UI_FONT_SCALE);
-            TextButton backButton = new TextButton("Back", uiSkin);
-            backButton.getLabel().setFontScale(UI_FONT_SCALE);
-            backButton.pad(20);
-
-            backButton.addListener(new ClickListener() {
-                @Override
-                public void clicked(InputEvent event, float x, float y) {
-                    Gdx.app.log("MainGame", "Victory back button clicked");
-                    currentPhase = GamePhase.MAIN_MENU;
-                    powerupCollectedSound.play(soundLevel);
-                    displayMainMenu();
-                }
-                @Override
-                public void enter(InputEvent event, float x, float y, int pointer, com.badlogic.gdx.scenes.scene2d.Actor fromActor) {
-                    backButton.setColor(1, 1, 0.8f, 1);
-                    backButton.setScale(1.05f);
-                }
-                @Override
-                public void exit(InputEvent event, float x, float y, int pointer, com.badlogic.gdx.scenes.scene2d.Actor toActor) {
-                    backButton.setColor(1, 1, 1, 1);
-                    backButton.setScale(1.0f);
-                }
-            });
-
-            victoryTable.add(scoreLabel).padBottom(40).row();
-            victoryTable.add(victoryLabel).padBottom(100).row();
-            victoryTable.add(backButton).width(600).height(100).row();
-            gameStage.addActor(victoryTable);
+            runHistory.record(playerScore, gameTime, invadersKilled, bossFightTime);
+            deleteQuickSave();
+            writeReplay();
+            setLabelText(victoryScoreLabel, "Score: ", playerScore);
+            showScreen(victoryTable);
         } catch (Exception e) {
             Gdx.app.error("MainGame", "Error displaying victory: " + e.getMessage(), e);
         }
@@ -1298,45 +2569,11 @@ public class MainGame extends ApplicationAdapter {
             gameTrack.stop();
             menuTrack.play();
             Gdx.input.setInputProcessor(gameStage);
-            gameStage.clear();
-
-            Table defeatTable = new Table();
-            defeatTable.setFillParent(true);
-            defeatTable.padTop(200);
-            defeatTable.setBackground(uiSkin.newDrawable("default-pane", new Color(0.1f, 0.1f, 0.1f, 0.7f)));
-
-            Label scoreLabel = new Label("Score: " + playerScore, uiSkin);
-            scoreLabel.setFontScale(UI_FONT_SCALE);
-            Label defeatLabel = new Label("Game Over!", uiSkin);
-            defeatLabel.setFontScale(UI_FONT_SCALE);
-            TextButton backButton = new TextButton("Back", uiSkin);
-            backButton.getLabel().setFontScale(UI_FONT_SCALE);
-            backButton.pad(20);
-
-            backButton.addListener(new ClickListener() {
-                @Override
-                public void clicked(InputEvent event, float x, float y) {
-                    Gdx.app.log("MainGame", "Defeat back button clicked");
-                    currentPhase = GamePhase.MAIN_MENU;
-                    powerupCollectedSound.play(soundLevel);
-                    displayMainMenu();
-                }
-                @Override
-                public void enter(InputEvent event, float x, float y, int pointer, com.badlogic.gdx.scenes.scene2d.Actor fromActor) {
-                    backButton.setColor(1, 1, 0.8f, 1);
-                    backButton.setScale(1.05f);
-                }
-                @Override
-                public void exit(InputEvent event, float x, float y, int pointer, com.badlogic.gdx.scenes.scene2d.Actor toActor) {
-                    backButton.setColor(1, 1, 1, 1);
-                    backButton.setScale(1.0f);
-                }
-            });
-
-            defeatTable.add(scoreLabel).padBottom(40).row();
-            defeatTable.add(defeatLabel).padBottom(100).row();
-            defeatTable.add(backButton).width(600).height(100).row();
-            gameStage.addActor(defeatTable);
+            runHistory.record(playerScore, gameTime, invadersKilled, bossFightTime);
+            deleteQuickSave();
+            writeReplay();
+            setLabelText(defeatScoreLabel, "Score: ", playerScore);
+            showScreen(defeatTable);
         } catch (Exception e) {
             Gdx.app.error("MainGame", "Error displaying defeat: " + e.getMessage(), e);
         }
@@ -1346,28 +2583,13 @@ public class MainGame extends ApplicationAdapter {
     public void dispose() {
         try {
             Gdx.app.log("MainGame", "Disposing resources");
-            gameStage.dispose();
-            uiSkin.dispose();
-            if (spriteRenderer != null) spriteRenderer.dispose();
-            for (Texture tex : spaceshipTextures) if (tex != null) tex.dispose();
-            for (Texture tex : invaderTextures) if (tex != null) tex.dispose();
-            for (Texture tex : shootInvaderTextures) if (tex != null) tex.dispose();
-            for (Texture tex : blastTextures) if (tex != null) tex.dispose();
-            if (projectileTexture != null) projectileTexture.dispose();
-            if (powerupIcon != null) powerupIcon.dispose();
-            if (shieldIcon != null) shieldIcon.dispose();
-            if (bossSprite != null) bossSprite.dispose();
-            if (laserTexture != null) laserTexture.dispose();
-            if (menuBackdrop != null) menuBackdrop.dispose();
-            if (pauseScreen != null) pauseScreen.dispose();
-            if (spaceBackdrop != null) spaceBackdrop.dispose();
-            if (menuTrack != null) menuTrack.dispose();
-            if (gameTrack != null) gameTrack.dispose();
-            if (fireSound != null) fireSound.dispose();
-            if (lifeLostSound != null) lifeLostSound.dispose();
-            if (invaderDestroyedSound != null) invaderDestroyedSound.dispose();
-            if (powerupCollectedSound != null) powerupCollectedSound.dispose();
-            if (bossDamagedSound != null) bossDamagedSound.dispose();
+            setMenuBackdropLoaded(false);
+            resources.unloadGroup(GROUP_GAME);
+            resources.unloadGroup(GROUP_AUDIO);
+            resources.unloadGroup(GROUP_UI);
+            if (runHistory != null) runHistory.dispose();
+            // Anything still held now was acquired without a matching release
+            resources.dispose();
         } catch (Exception e) {
             Gdx.app.error("MainGame", "Error disposing resources: " + e.getMessage(), e);
         }
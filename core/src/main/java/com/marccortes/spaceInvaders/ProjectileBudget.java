@@ -0,0 +1,122 @@
+package com.marccortes.spaceInvaders;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.FloatArray;
+
+// Caps how many enemy projectiles may be alive at once, so the cost of updating, colliding and
+// drawing them has a fixed ceiling however many shooters or volleys a tick produces. When a
+// spawn would exceed the limit, the policy decides which projectile goes:
+// - OLDEST: the longest-lived one (the store keeps spawn order, so index 0)
+// - FARTHEST: the one farthest from the nearest ship, possibly the new one itself
+// - RECEDING: one that can no longer hit a ship (rising, or already below both), else the oldest
+// Projectiles leaving the world are removed before the budget is asked, and the whole world is
+// on screen, so every candidate is visible. Counts of spawns and culls, for the last second and
+// the session, are logged about once a second while culling happens.
+class ProjectileBudget {
+    enum Policy { OLDEST, FARTHEST, RECEDING }
+    static final int[] LIMITS = { 128, 256, 512 };
+    static final int REJECT_SPAWN = -1;
+
+    private int limit = LIMITS[1];
+    private Policy policy = Policy.RECEDING;
+
+    // Metrics since the last report, and for the whole session
+    private int spawned, evicted, rejected, peak;
+    private long totalSpawned, totalCulled;
+    private float reportTimer;
+
+    int getLimit() {
+        return limit;
+    }
+
+    void setLimit(int limit) {
+        this.limit = limit;
+    }
+
+    Policy getPolicy() {
+        return policy;
+    }
+
+    void setPolicy(Policy policy) {
+        this.policy = policy;
+    }
+
+    // Picks the live projectile to remove before spawning one at (x, y), or REJECT_SPAWN to
+    // drop the new one instead. Ships are given as two points; pass the same one twice when alone.
+    int selectVictim(Array<Rectangle> live, FloatArray velocityY, float x, float y,
+                     float shipX, float shipY, float secondShipX, float secondShipY) {
+        int victim;
+        switch (policy) {
+            case FARTHEST:
+                victim = farthest(live, x, y, shipX, shipY, secondShipX, secondShipY);
+                break;
+            case RECEDING:
+                victim = receding(live, velocityY, shipY, secondShipY);
+                break;
+            default:
+                victim = 0;
+                break;
+        }
+        if (victim == REJECT_SPAWN) {
+            rejected++;
+        } else {
+            evicted++;
+        }
+        totalCulled++;
+        return victim;
+    }
+
+    void countSpawn(int liveCount) {
+        spawned++;
+        totalSpawned++;
+        peak = Math.max(peak, liveCount);
+    }
+
+    // Called once per frame
+    void update(float delta) {
+        reportTimer += delta;
+        if (reportTimer < 1f) return;
+        reportTimer = 0f;
+        if (evicted + rejected > 0) {
+            Gdx.app.log("ProjectileBudget", "limit " + limit + " (" + policy + "): " + spawned + " spawned, "
+                + evicted + " evicted, " + rejected + " rejected, peak " + peak + " live; session: "
+                + totalSpawned + " spawned, " + totalCulled + " culled");
+        }
+        spawned = 0;
+        evicted = 0;
+        rejected = 0;
+        peak = 0;
+    }
+
+    private static int farthest(Array<Rectangle> live, float x, float y,
+                                float shipX, float shipY, float secondShipX, float secondShipY) {
+        int victim = REJECT_SPAWN;
+        float farthest = distanceToShips(x, y, shipX, shipY, secondShipX, secondShipY);
+        for (int i = 0; i < live.size; i++) {
+            Rectangle p = live.get(i);
+            float distance = distanceToShips(p.x, p.y, shipX, shipY, secondShipX, secondShipY);
+            if (distance > farthest) {
+                farthest = distance;
+                victim = i;
+            }
+        }
+        return victim;
+    }
+
+    private static float distanceToShips(float x, float y, float shipX, float shipY, float secondShipX, float secondShipY) {
+        float dx = x - shipX, dy = y - shipY;
+        float dx2 = x - secondShipX, dy2 = y - secondShipY;
+        return Math.min(dx * dx + dy * dy, dx2 * dx2 + dy2 * dy2);
+    }
+
+    private static int receding(Array<Rectangle> live, FloatArray velocityY, float shipY, float secondShipY) {
+        float lowestShip = Math.min(shipY, secondShipY);
+        for (int i = 0; i < live.size; i++) {
+            Rectangle p = live.get(i);
+            if (velocityY.get(i) >= 0f || p.y + p.height < lowestShip) return i;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,52 @@
+package com.marccortes.spaceInvaders;
+
+import com.badlogic.gdx.utils.IntArray;
+
+import java.nio.ByteBuffer;
+
+// Reads a written replay back and compares every decoded frame with the one captured while
+// recording it. Nothing in the game plays replays yet, so this is what notices when the
+// decoder or the file layout breaks. Off unless the JVM runs with -DreplayCheck=true, which
+// the soak run sets; a failed check is logged as an error, which fails the soak.
+class ReplayCheck {
+    static final String PROPERTY = "replayCheck";
+    static final String TAG = "ReplayCheck";
+
+    // Order-sensitive hash of everything a frame holds, kept per recorded frame
+    static int hash(EntityFrame frame) {
+        int hash = frame.timeMillis;
+        hash = 31 * hash + frame.score;
+        hash = 31 * hash + frame.lives;
+        for (int c = 0; c < EntityFrame.CATEGORY_COUNT; c++) {
+            hash = 31 * hash + frame.counts[c];
+            for (int i = 0; i < frame.counts[c]; i++) {
+                hash = 31 * hash + frame.x[c][i];
+                hash = 31 * hash + frame.y[c][i];
+                hash = 31 * hash + frame.kind[c][i];
+            }
+        }
+        return hash;
+    }
+
+    // Returns null when the replay decodes to the recorded frames, otherwise what differs
+    static String verify(byte[] replay, IntArray recorded) {
+        ByteBuffer in = ByteBuffer.wrap(replay);
+        if (in.getInt() != MainGame.REPLAY_MAGIC || in.getShort() != MainGame.REPLAY_VERSION) {
+            return "unknown header";
+        }
+        EntityDeltaCodec codec = new EntityDeltaCodec();
+        EntityFrame frame = new EntityFrame();
+        int count = 0;
+        while (in.hasRemaining()) {
+            if (count == recorded.size) return "more frames than the " + recorded.size + " recorded";
+            int length = Varint.read(in);
+            int end = in.position() + length;
+            codec.decode(in, frame);
+            if (in.position() != end) return "frame " + count + " does not end where its length says";
+            if (hash(frame) != recorded.get(count)) return "frame " + count + " differs from the recorded one";
+            count++;
+        }
+        if (count != recorded.size) return "only " + count + " of " + recorded.size + " recorded frames";
+        return null;
+    }
+}
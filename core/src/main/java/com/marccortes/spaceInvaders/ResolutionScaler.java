@@ -0,0 +1,145 @@
+package com.marccortes.spaceInvaders;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Graphics;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.glutils.FrameBuffer;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.utils.Disposable;
+
+import java.util.Arrays;
+
+// Renders the game scene into an offscreen buffer at a fraction of the screen resolution and
+// stretches it to the screen. The fraction follows a rolling average of the frame time, so
+// fill-rate bound devices trade sharpness for a steady frame rate. At full scale the scene
+// goes straight to the backbuffer and no buffer exists. Frame times include the wait for vsync
+// and for the frame cap, so the target is the longer of the refresh interval and the cap
+// interval; a device that just waits for either is on target.
+class ResolutionScaler implements Disposable {
+    private static final float MIN_SCALE = 0.5f;
+    private static final float MAX_SCALE = 1f;
+    private static final float SCALE_STEP = 0.125f;
+    private static final int SAMPLE_COUNT = 30;
+    private static final float MAX_SAMPLE = 0.25f; // longer frames are hitches, not load
+    private static final float DOWNSCALE_RATIO = 1.2f;
+    private static final float UPSCALE_DELAY = 3f;
+    private static final float CHANGE_COOLDOWN = 1f;
+
+    private final float refreshFrameTime;
+    private float targetFrameTime;
+    private final float[] samples = new float[SAMPLE_COUNT];
+    private int sampleIndex, sampleCount;
+    private float sampleSum;
+    private float scale = MAX_SCALE;
+    private float timeOnTarget, cooldown;
+
+    private FrameBuffer frameBuffer;
+    private int bufferWidth, bufferHeight;
+    private boolean capturing;
+
+    ResolutionScaler(int frameCap) {
+        // Headless backends report no display mode
+        Graphics.DisplayMode mode = Gdx.graphics.getDisplayMode();
+        int refreshRate = mode != null ? mode.refreshRate : 0;
+        refreshFrameTime = 1f / (refreshRate > 0 ? refreshRate : 60);
+        setFrameCap(frameCap);
+    }
+
+    // Samples taken under the previous cap no longer compare with the new target, so they are dropped
+    void setFrameCap(int frameCap) {
+        targetFrameTime = Math.max(refreshFrameTime, 1f / frameCap);
+        Arrays.fill(samples, 0f);
+        sampleIndex = 0;
+        sampleCount = 0;
+        sampleSum = 0f;
+        timeOnTarget = 0f;
+    }
+
+    // Feeds one frame time into the rolling average and steps the scale when needed
+    void update(float frameTime) {
+        if (frameTime > MAX_SAMPLE) return;
+        sampleSum += frameTime - samples[sampleIndex];
+        samples[sampleIndex] = frameTime;
+        sampleIndex = (sampleIndex + 1) % SAMPLE_COUNT;
+        if (sampleCount < SAMPLE_COUNT) sampleCount++;
+        cooldown = Math.max(0f, cooldown - frameTime);
+        if (sampleCount < SAMPLE_COUNT || cooldown > 0f) return;
+
+        float average = sampleSum / SAMPLE_COUNT;
+        if (average > targetFrameTime * DOWNSCALE_RATIO) {
+            timeOnTarget = 0f;
+            setScale(scale - SCALE_STEP);
+        } else {
+            // Vsync hides any headroom, so probe upwards after a sustained run on target
+            timeOnTarget += frameTime;
+            if (timeOnTarget >= UPSCALE_DELAY) {
+                timeOnTarget = 0f;
+                setScale(scale + SCALE_STEP);
+            }
+        }
+    }
+
+    private void setScale(float newScale) {
+        newScale = Math.max(MIN_SCALE, Math.min(MAX_SCALE, newScale));
+        if (newScale == scale) return;
+        Gdx.app.log("ResolutionScaler", "Render scale " + scale + " -> " + newScale);
+        scale = newScale;
+        cooldown = CHANGE_COOLDOWN;
+    }
+
+    float getScale() {
+        return scale;
+    }
+
+    // Redirects rendering into the offscreen buffer when scaled down; call before drawing the scene
+    void begin(int screenWidth, int screenHeight) {
+        capturing = scale < MAX_SCALE;
+        if (!capturing) {
+            disposeBuffer();
+            return;
+        }
+        int width = Math.max(1, Math.round(screenWidth * scale));
+        int height = Math.max(1, Math.round(screenHeight * scale));
+        if (frameBuffer == null || width != bufferWidth || height != bufferHeight) {
+            disposeBuffer();
+            frameBuffer = new FrameBuffer(Pixmap.Format.RGB888, width, height, false);
+            frameBuffer.getColorBufferTexture().setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
+            bufferWidth = width;
+            bufferHeight = height;
+        }
+        frameBuffer.begin();
+        Gdx.gl.glClearColor(0, 0, 0, 1);
+        Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
+    }
+
+    // Stops capturing and stretches the captured scene over the given screen area.
+    // Leaves the batch on the screen projection.
+    void end(SpriteBatch batch, Matrix4 screenProjection, float screenX, float screenY, float screenWidth, float screenHeight) {
+        if (!capturing) return;
+        frameBuffer.end();
+        capturing = false;
+        batch.setProjectionMatrix(screenProjection);
+        batch.begin();
+        batch.disableBlending();
+        // Framebuffer textures are stored bottom-up, so flip them while drawing
+        batch.draw(frameBuffer.getColorBufferTexture(), screenX, screenY, screenWidth, screenHeight,
+            0, 0, bufferWidth, bufferHeight, false, true);
+        batch.enableBlending();
+        batch.end();
+    }
+
+    private void disposeBuffer() {
+        if (frameBuffer != null) {
+            frameBuffer.dispose();
+            frameBuffer = null;
+        }
+    }
+
+    @Override
+    public void dispose() {
+        disposeBuffer();
+    }
+}
@@ -0,0 +1,212 @@
+package com.marccortes.spaceInvaders;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.audio.Music;
+import com.badlogic.gdx.audio.Sound;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.TextureData;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.ObjectMap;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Owns every GPU and audio handle the game creates. Files are loaded once per path and shared:
+// each acquire adds a reference, and the handle is disposed when the last one is released.
+// Objects that are not loaded from a single file (the skin, the stage, the sprite batch) are
+// tracked under a name and disposed the same way.
+// Every acquisition belongs to a named group, so a phase of the game can drop what it no longer
+// draws with unloadGroup() and acquire it again later, decoding it off the render thread with
+// textureAsync() so the phase change does not wait for it. Whatever is still referenced when
+// the registry is disposed is a leak: it is logged with its owning groups, then freed.
+class ResourceRegistry implements Disposable {
+    private static final class Handle {
+        final String key;
+        final Class<?> type;
+        final Disposable resource;
+        int references;
+
+        Handle(String key, Class<?> type, Disposable resource) {
+            this.key = key;
+            this.type = type;
+            this.resource = resource;
+        }
+    }
+
+    private final StartupProfiler profiler;
+    private final ObjectMap<String, Handle> handles = new ObjectMap<>();
+    // Keys acquired by each group, once per reference, in acquisition order
+    private final ObjectMap<String, Array<String>> groups = new ObjectMap<>();
+    private final ObjectMap<String, Future<TextureData>> decoding = new ObjectMap<>();
+    private final ExecutorService decoder = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ResourceDecoder");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private int loads, acquisitions;
+
+    // Loads are timed as spans of the profiler until it is finished
+    ResourceRegistry(StartupProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    Texture texture(String group, String path) {
+        return acquire(group, path, Texture.class);
+    }
+
+    // Like texture(), but the file is decoded on a background thread: calls return null until
+    // the pixels are ready, and the call that finds them ready uploads and acquires the texture.
+    // Call it every frame the texture is wanted. A frame is requested once the decode ends,
+    // so a screen that renders only on input still picks the texture up.
+    Texture textureAsync(String group, String path) {
+        if (handles.containsKey(path)) return texture(group, path);
+        Future<TextureData> pending = decoding.get(path);
+        if (pending == null) {
+            TextureData data = TextureFormats.data(path);
+            decoding.put(path, decoder.submit(() -> {
+                try {
+                    data.prepare();
+                    return data;
+                } finally {
+                    Gdx.app.postRunnable(() -> Gdx.graphics.requestRendering());
+                }
+            }));
+            return null;
+        }
+        if (!pending.isDone()) return null;
+        decoding.remove(path);
+        TextureData data;
+        try {
+            data = pending.get();
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException("Error decoding " + path, e);
+        }
+        Handle handle = new Handle(path, Texture.class, TextureFormats.create(data));
+        handles.put(path, handle);
+        loads++;
+        addReference(group, handle);
+        return (Texture) handle.resource;
+    }
+
+    Sound sound(String group, String path) {
+        return acquire(group, path, Sound.class);
+    }
+
+    Music music(String group, String path) {
+        return acquire(group, path, Music.class);
+    }
+
+    // Registers an object created elsewhere; it is disposed when its group is unloaded
+    <T extends Disposable> T track(String group, String name, T resource) {
+        if (handles.containsKey(name)) throw new IllegalArgumentException("Resource already tracked: " + name);
+        Handle handle = new Handle(name, resource.getClass(), resource);
+        handles.put(name, handle);
+        addReference(group, handle);
+        return resource;
+    }
+
+    // Releases every reference the group holds, newest first
+    void unloadGroup(String group) {
+        Array<String> keys = groups.get(group);
+        if (keys == null) return;
+        for (int i = keys.size - 1; i >= 0; i--) {
+            release(keys.get(i));
+        }
+        keys.clear();
+    }
+
+    void logSummary() {
+        Gdx.app.log("ResourceRegistry", acquisitions + " acquisitions served by " + loads + " loads, "
+            + handles.size + " handles live in " + groups.size + " groups");
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends Disposable> T acquire(String group, String path, Class<T> type) {
+        Handle handle = handles.get(path);
+        if (handle == null) {
+            int span = profiler.begin(path);
+            handle = new Handle(path, type, load(path, type));
+            profiler.end(span);
+            handles.put(path, handle);
+            loads++;
+        } else if (handle.type != type) {
+            throw new IllegalArgumentException(path + " is already loaded as a " + handle.type.getSimpleName());
+        }
+        addReference(group, handle);
+        return (T) handle.resource;
+    }
+
+    private Disposable load(String path, Class<?> type) {
+        if (type == Texture.class) return TextureFormats.load(path);
+        if (type == Sound.class) return Gdx.audio.newSound(Gdx.files.internal(path));
+        if (type == Music.class) return Gdx.audio.newMusic(Gdx.files.internal(path));
+        throw new IllegalArgumentException("Unsupported resource type: " + type.getSimpleName());
+    }
+
+    private void addReference(String group, Handle handle) {
+        Array<String> keys = groups.get(group);
+        if (keys == null) {
+            keys = new Array<>();
+            groups.put(group, keys);
+        }
+        keys.add(handle.key);
+        handle.references++;
+        acquisitions++;
+    }
+
+    private void release(String key) {
+        Handle handle = handles.get(key);
+        if (handle == null) {
+            Gdx.app.error("ResourceRegistry", "Released unknown resource " + key);
+            return;
+        }
+        if (--handle.references > 0) return;
+        handles.remove(key);
+        try {
+            handle.resource.dispose();
+        } catch (Exception e) {
+            Gdx.app.error("ResourceRegistry", "Error disposing " + key + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void dispose() {
+        decoder.shutdownNow();
+        // Pixels decoded for a texture that was never uploaded
+        for (Future<TextureData> pending : decoding.values()) {
+            if (!pending.isDone()) continue;
+            try {
+                TextureData data = pending.get();
+                if (data.getType() == TextureData.TextureDataType.Pixmap && data.disposePixmap()) {
+                    data.consumePixmap().dispose();
+                }
+            } catch (InterruptedException | ExecutionException e) {
+                // Nothing was decoded
+            }
+        }
+        decoding.clear();
+        for (ObjectMap.Entry<String, Array<String>> group : groups) {
+            Array<String> keys = group.value;
+            for (int i = 0; i < keys.size; i++) {
+                String key = keys.get(i);
+                Handle handle = handles.get(key);
+                // A key held several times by one group is reported once
+                if (handle == null || keys.indexOf(key, false) != i) continue;
+                Gdx.app.error("ResourceRegistry", "Undisposed " + handle.type.getSimpleName() + " " + key
+                    + " (" + handle.references + " references, group " + group.key + ")");
+            }
+        }
+        for (Handle handle : handles.values()) {
+            try {
+                handle.resource.dispose();
+            } catch (Exception e) {
+                Gdx.app.error("ResourceRegistry", "Error disposing " + handle.key + ": " + e.getMessage(), e);
+            }
+        }
+        handles.clear();
+        groups.clear();
+    }
+}
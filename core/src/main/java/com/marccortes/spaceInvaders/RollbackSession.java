@@ -0,0 +1,155 @@
+package com.marccortes.spaceInvaders;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.utils.TimeUtils;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// Runs a two-player match on fixed ticks without delaying the local input.
+// The local player's input is applied on the tick it is sampled. The remote player's input is
+// predicted as a repeat of the last one received; every tick saves a snapshot first, so when
+// the real remote input turns out different the match is rolled back to that tick and
+// re-simulated up to the present within the same frame.
+class RollbackSession {
+    static final float TICK_DURATION = 1f / 60f;
+    private static final int RING_SIZE = 16;
+    private static final int MAX_PREDICTION = RING_SIZE - 1; // ticks we may run ahead of the remote input
+    private static final int MAX_TICKS_PER_FRAME = 4; // drop time after long hitches instead of spiralling
+    private static final int RECEIVE_BATCH = 64;
+
+    // The match being simulated; every method runs on the render thread
+    interface Simulation {
+        // The local input for a tick, from the input events up to its end in TimeUtils.nanoTime()
+        int sampleLocalInput(long tickEndNanos);
+        ByteBuffer save(ByteBuffer reuse);
+        void restore(ByteBuffer snapshot);
+        void step(int localInput, int remoteInput, boolean resimulating);
+    }
+
+    // Carries inputs between the two peers
+    interface Channel {
+        void send(int tick, int input);
+        // Copies arrived remote inputs into the arrays and returns how many there were
+        int receive(int[] ticks, int[] inputs);
+    }
+
+    private final Simulation simulation;
+    private final Channel channel;
+    private final ByteBuffer[] snapshots = new ByteBuffer[RING_SIZE];
+    private final int[] localInputs = new int[RING_SIZE];
+    private final int[] remoteInputs = new int[RING_SIZE]; // input each tick was simulated with, guessed or confirmed
+    private final int[] remoteInputTicks = new int[RING_SIZE]; // tick a confirmed remote input belongs to, or -1
+    private final int[] receivedTicks = new int[RECEIVE_BATCH];
+    private final int[] receivedInputs = new int[RECEIVE_BATCH];
+    private int currentTick;
+    private int lastConfirmedTick = -1;
+    private int lastRemoteInput;
+    private float accumulator;
+
+    // Statistics, logged about once a second
+    private int rollbackCount, deepestRollback, stalledTicks;
+    private long slowestRollbackNanos;
+    private float statsTimer;
+
+    RollbackSession(Simulation simulation, Channel channel) {
+        this.simulation = simulation;
+        this.channel = channel;
+        Arrays.fill(remoteInputTicks, -1);
+    }
+
+    // Applies late remote inputs, then advances the match by the ticks that fit in delta
+    void update(float delta) {
+        receiveRemoteInputs();
+        accumulator += delta;
+        long now = TimeUtils.nanoTime();
+        int ticks = 0;
+        while (accumulator >= TICK_DURATION && ticks < MAX_TICKS_PER_FRAME) {
+            if (currentTick - lastConfirmedTick > MAX_PREDICTION) {
+                // Too far ahead of the remote peer to roll back safely; wait for it
+                stalledTicks++;
+                break;
+            }
+            // The accumulated time ends now, so this tick ends where the time left after it starts
+            advance(now - (long) ((accumulator - TICK_DURATION) * 1e9));
+            accumulator -= TICK_DURATION;
+            ticks++;
+        }
+        if (ticks == MAX_TICKS_PER_FRAME) accumulator = Math.min(accumulator, TICK_DURATION);
+        logStats(delta);
+    }
+
+    private void advance(long tickEndNanos) {
+        int slot = currentTick % RING_SIZE;
+        int localInput = simulation.sampleLocalInput(tickEndNanos);
+        localInputs[slot] = localInput;
+        channel.send(currentTick, localInput);
+        snapshots[slot] = simulation.save(snapshots[slot]);
+        simulation.step(localInput, remoteInputFor(currentTick), false);
+        currentTick++;
+    }
+
+    // Picks the confirmed remote input for a tick, or predicts it, and remembers the choice
+    private int remoteInputFor(int tick) {
+        int slot = tick % RING_SIZE;
+        if (remoteInputTicks[slot] != tick) remoteInputs[slot] = lastRemoteInput;
+        return remoteInputs[slot];
+    }
+
+    private void receiveRemoteInputs() {
+        int rollbackTick = Integer.MAX_VALUE;
+        int count;
+        while ((count = channel.receive(receivedTicks, receivedInputs)) > 0) {
+            for (int i = 0; i < count; i++) {
+                int tick = receivedTicks[i];
+                int input = receivedInputs[i];
+                if (tick <= currentTick - RING_SIZE) {
+                    Gdx.app.error("RollbackSession", "Dropping remote input for tick " + tick + ", too old to roll back");
+                    continue;
+                }
+                int slot = tick % RING_SIZE;
+                // A tick already simulated with a different guess has to be replayed
+                if (tick < currentTick && remoteInputs[slot] != input) {
+                    rollbackTick = Math.min(rollbackTick, tick);
+                }
+                remoteInputs[slot] = input;
+                remoteInputTicks[slot] = tick;
+                if (tick > lastConfirmedTick) {
+                    lastConfirmedTick = tick;
+                    lastRemoteInput = input;
+                }
+            }
+            if (count < RECEIVE_BATCH) break;
+        }
+        if (rollbackTick != Integer.MAX_VALUE) rollback(rollbackTick);
+    }
+
+    // Restores the snapshot taken before the given tick and replays every tick since
+    private void rollback(int tick) {
+        long start = TimeUtils.nanoTime();
+        simulation.restore(snapshots[tick % RING_SIZE]);
+        for (int t = tick; t < currentTick; t++) {
+            int slot = t % RING_SIZE;
+            if (t > tick) snapshots[slot] = simulation.save(snapshots[slot]);
+            simulation.step(localInputs[slot], remoteInputFor(t), true);
+        }
+        long elapsed = TimeUtils.nanoTime() - start;
+        rollbackCount++;
+        deepestRollback = Math.max(deepestRollback, currentTick - tick);
+        slowestRollbackNanos = Math.max(slowestRollbackNanos, elapsed);
+    }
+
+    private void logStats(float delta) {
+        statsTimer += delta;
+        if (statsTimer < 1f) return;
+        statsTimer = 0f;
+        if (rollbackCount > 0 || stalledTicks > 0) {
+            Gdx.app.log("RollbackSession", "tick " + currentTick + ": " + rollbackCount + " rollbacks, deepest "
+                + deepestRollback + " ticks, slowest " + (slowestRollbackNanos / 1000) + " us, " + stalledTicks + " stalled ticks");
+        }
+        rollbackCount = 0;
+        deepestRollback = 0;
+        stalledTicks = 0;
+        slowestRollbackNanos = 0;
+    }
+}
@@ -0,0 +1,287 @@
+package com.marccortes.spaceInvaders;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Comparator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// Local store of finished runs.
+// Runs are appended as fixed-size binary records to a log file by a single background
+// writer, so the render thread never waits on disk. Other game-over files, like the replay,
+// go through the same writer. When the log grows past a threshold the
+// writer rewrites it, keeping the best and the most recent runs. The top-N table for the
+// menu is read lazily on the writer thread and then kept up to date in memory. A crash in the
+// middle of an append leaves a torn record at the end of the log; it is cut off when the log
+// is loaded, before anything else is appended. A log in a format this version does not know
+// is moved aside at that point and a new one is started.
+class RunHistory implements Disposable {
+    static final int TOP_COUNT = 5;
+    private static final String LOG_FILE = "run_history.bin";
+    private static final int MAGIC = 0x53495248; // "SIRH"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final int RECORD_SIZE = 24;
+    private static final int COMPACT_THRESHOLD = 4096;
+    private static final int KEEP_BEST = 256;
+    private static final int KEEP_RECENT = 512;
+
+    static class Run {
+        long timestamp;
+        int score;
+        float duration;
+        int kills;
+        float bossTime;
+    }
+
+    // Called on the render thread once the top table has been loaded or changed
+    interface Listener {
+        void topScoresChanged(RunHistory history);
+    }
+
+    private static final Comparator<Run> BY_SCORE = (a, b) -> Integer.compare(b.score, a.score);
+
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "RunHistoryWriter");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final FileHandle logFile;
+    private final Listener listener;
+    // Written on the writer thread, read on the render thread after a posted notification
+    private volatile Run[] topRuns = new Run[0];
+    private boolean topRequested;
+    private int recordCount = -1;
+
+    RunHistory(Listener listener) {
+        this.logFile = Gdx.files.local(LOG_FILE);
+        this.listener = listener;
+    }
+
+    // Queues a finished run for writing; never blocks the caller
+    void record(int score, float duration, int kills, float bossTime) {
+        Run run = new Run();
+        run.timestamp = System.currentTimeMillis();
+        run.score = score;
+        run.duration = duration;
+        run.kills = kills;
+        run.bossTime = bossTime;
+        writer.execute(() -> {
+            try {
+                ensureLoaded();
+                append(run);
+                insertTop(run);
+                if (recordCount > COMPACT_THRESHOLD) compact();
+                notifyListener();
+            } catch (IOException e) {
+                Gdx.app.error("RunHistory", "Error recording run: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    // Writes length bytes of data to a local file on the writer thread. The array is handed
+    // over: the caller must not change it afterwards.
+    void writeFile(String fileName, byte[] data, int length) {
+        writer.execute(() -> {
+            try {
+                Gdx.files.local(fileName).writeBytes(data, 0, length, false);
+                Gdx.app.log("RunHistory", "Wrote " + fileName + ", " + length + " bytes");
+            } catch (Exception e) {
+                Gdx.app.error("RunHistory", "Error writing " + fileName + ": " + e.getMessage(), e);
+            }
+        });
+    }
+
+    // Runs the task on the writer thread after everything queued before it
+    void afterWrites(Runnable task) {
+        writer.execute(task);
+    }
+
+    // Starts loading the top table the first time it is needed
+    void requestTopScores() {
+        if (topRequested) {
+            notifyListener();
+            return;
+        }
+        topRequested = true;
+        writer.execute(() -> {
+            try {
+                ensureLoaded();
+                notifyListener();
+            } catch (IOException e) {
+                Gdx.app.error("RunHistory", "Error loading run history: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    Run[] getTopRuns() {
+        return topRuns;
+    }
+
+    int getBestScore() {
+        Run[] runs = topRuns;
+        return runs.length > 0 ? runs[0].score : 0;
+    }
+
+    private void notifyListener() {
+        if (listener != null) Gdx.app.postRunnable(() -> listener.topScoresChanged(this));
+    }
+
+    // Writer thread only
+    private void ensureLoaded() throws IOException {
+        if (recordCount >= 0) return;
+        setAsideUnknownFormat();
+        truncateTornRecord();
+        Array<Run> runs = readAll();
+        recordCount = runs.size;
+        runs.sort(BY_SCORE);
+        Run[] top = new Run[Math.min(TOP_COUNT, runs.size)];
+        for (int i = 0; i < top.length; i++) top[i] = runs.get(i);
+        topRuns = top;
+    }
+
+    private void insertTop(Run run) {
+        Run[] current = topRuns;
+        int position = current.length;
+        while (position > 0 && current[position - 1].score < run.score) position--;
+        if (position >= TOP_COUNT) return;
+        Run[] top = new Run[Math.min(TOP_COUNT, current.length + 1)];
+        System.arraycopy(current, 0, top, 0, position);
+        top[position] = run;
+        System.arraycopy(current, position, top, position + 1, top.length - position - 1);
+        topRuns = top;
+    }
+
+    // A log from another version of the game is kept whole for that version: cutting it to this
+    // version's records or appending to it would corrupt it, and runs appended would never be read
+    private void setAsideUnknownFormat() throws IOException {
+        if (!logFile.exists() || logFile.length() < HEADER_SIZE) return;
+        boolean known;
+        DataInputStream input = new DataInputStream(logFile.read());
+        try {
+            known = input.readInt() == MAGIC && input.readInt() == VERSION;
+        } finally {
+            input.close();
+        }
+        if (known) return;
+        FileHandle aside = Gdx.files.local(LOG_FILE + "." + System.currentTimeMillis() + ".unknown");
+        logFile.moveTo(aside);
+        Gdx.app.error("RunHistory", "Moved run history with unknown format to " + aside.name() + ", starting a new one");
+    }
+
+    // Appends land after whatever is at the end of the log, so partial bytes left there would
+    // shift every later record
+    private void truncateTornRecord() throws IOException {
+        if (!logFile.exists()) return;
+        long length = logFile.length();
+        long valid = length < HEADER_SIZE ? 0 : length - (length - HEADER_SIZE) % RECORD_SIZE;
+        if (valid == length) return;
+        try (RandomAccessFile file = new RandomAccessFile(logFile.file(), "rw")) {
+            file.setLength(valid);
+        }
+        Gdx.app.log("RunHistory", "Dropped " + (length - valid) + " bytes of a torn record");
+    }
+
+    private Array<Run> readAll() throws IOException {
+        Array<Run> runs = new Array<>();
+        if (!logFile.exists() || logFile.length() < HEADER_SIZE) return runs;
+        DataInputStream input = new DataInputStream(new BufferedInputStream(logFile.read()));
+        try {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+                Gdx.app.error("RunHistory", "Ignoring run history with unknown format");
+                return runs;
+            }
+            long available = (logFile.length() - HEADER_SIZE) / RECORD_SIZE;
+            for (long i = 0; i < available; i++) {
+                runs.add(readRun(input));
+            }
+        } catch (EOFException e) {
+            // A torn final record from an interrupted write; keep what was read
+        } finally {
+            input.close();
+        }
+        return runs;
+    }
+
+    private void append(Run run) throws IOException {
+        boolean newFile = !logFile.exists() || logFile.length() < HEADER_SIZE;
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(logFile.write(!newFile)));
+        try {
+            if (newFile) writeHeader(output);
+            writeRun(output, run);
+        } finally {
+            output.close();
+        }
+        recordCount++;
+    }
+
+    // Rewrites the log with the best runs plus the most recent ones, in chronological order
+    private void compact() throws IOException {
+        Array<Run> runs = readAll();
+        Array<Run> byScore = new Array<>(runs);
+        byScore.sort(BY_SCORE);
+        Array<Run> kept = new Array<>();
+        for (int i = 0; i < Math.min(KEEP_BEST, byScore.size); i++) kept.add(byScore.get(i));
+        for (int i = Math.max(0, runs.size - KEEP_RECENT); i < runs.size; i++) {
+            if (!kept.contains(runs.get(i), true)) kept.add(runs.get(i));
+        }
+        kept.sort((a, b) -> Long.compare(a.timestamp, b.timestamp));
+
+        FileHandle temporary = Gdx.files.local(LOG_FILE + ".tmp");
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(temporary.write(false)));
+        try {
+            writeHeader(output);
+            for (Run run : kept) writeRun(output, run);
+        } finally {
+            output.close();
+        }
+        temporary.moveTo(logFile);
+        Gdx.app.log("RunHistory", "Compacted run history from " + runs.size + " to " + kept.size + " runs");
+        recordCount = kept.size;
+    }
+
+    private static void writeHeader(DataOutputStream output) throws IOException {
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+    }
+
+    private static void writeRun(DataOutputStream output, Run run) throws IOException {
+        output.writeLong(run.timestamp);
+        output.writeInt(run.score);
+        output.writeFloat(run.duration);
+        output.writeInt(run.kills);
+        output.writeFloat(run.bossTime);
+    }
+
+    private static Run readRun(DataInputStream input) throws IOException {
+        Run run = new Run();
+        run.timestamp = input.readLong();
+        run.score = input.readInt();
+        run.duration = input.readFloat();
+        run.kills = input.readInt();
+        run.bossTime = input.readFloat();
+        return run;
+    }
+
+    @Override
+    public void dispose() {
+        // Give queued runs a moment to reach the disk before the process exits
+        writer.shutdown();
+        try {
+            writer.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.marccortes.spaceInvaders;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.glutils.PixmapTextureData;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+
+// Vertically scrolling backdrop drawn as one repeat-wrapped quad per layer.
+// Scrolling only moves the texture coordinates, so a layer costs a single full-screen
+// quad no matter where it is in its cycle. Layers scroll at their own fraction of the
+// base speed for parallax.
+class ScrollingBackdrop implements Disposable {
+    private static class Layer {
+        Texture texture;
+        float speedFactor;
+        float alpha;
+        float offset; // in texture heights, kept in [0, 1)
+        Pixmap ownedPixmap;
+    }
+
+    private final Array<Layer> layers = new Array<>();
+
+    // Adds a layer on top of the existing ones; speedFactor 1 scrolls one screen height per
+    // screen height of base scroll
+    void addLayer(String path, float speedFactor, float alpha) {
+        Layer layer = new Layer();
+        Pixmap pixmap = new Pixmap(Gdx.files.internal(path));
+        boolean powerOfTwo = MathUtils.isPowerOfTwo(pixmap.getWidth()) && MathUtils.isPowerOfTwo(pixmap.getHeight());
+        if (powerOfTwo || Gdx.gl30 != null) {
+            // GLES3 and desktop GL repeat-wrap any size; GLES2 only power-of-two textures
+            pixmap.dispose();
+            layer.texture = TextureFormats.load(path);
+        } else {
+            Pixmap resized = new Pixmap(MathUtils.nextPowerOfTwo(pixmap.getWidth()), MathUtils.nextPowerOfTwo(pixmap.getHeight()), pixmap.getFormat());
+            resized.setFilter(Pixmap.Filter.BiLinear);
+            resized.drawPixmap(pixmap, 0, 0, pixmap.getWidth(), pixmap.getHeight(), 0, 0, resized.getWidth(), resized.getHeight());
+            pixmap.dispose();
+            layer.ownedPixmap = resized;
+            layer.texture = new Texture(new PixmapTextureData(resized, null, false, false, true));
+        }
+        layer.texture.setWrap(Texture.TextureWrap.Repeat, Texture.TextureWrap.Repeat);
+        layer.texture.setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
+        layer.speedFactor = speedFactor;
+        layer.alpha = alpha;
+        layers.add(layer);
+    }
+
+    // Scrolls every layer down by the given distance, measured against the view height
+    void scroll(float distance, float viewHeight) {
+        for (int i = 0; i < layers.size; i++) {
+            Layer layer = layers.get(i);
+            layer.offset -= distance * layer.speedFactor / viewHeight;
+            layer.offset -= (float) Math.floor(layer.offset);
+        }
+    }
+
+    void reset() {
+        for (int i = 0; i < layers.size; i++) {
+            layers.get(i).offset = 0f;
+        }
+    }
+
+    void draw(SpriteBatch batch, float x, float y, float width, float height) {
+        for (int i = 0; i < layers.size; i++) {
+            Layer layer = layers.get(i);
+            // The bottom layer covers the whole view, so it can skip blending when fully opaque
+            boolean opaque = i == 0 && layer.alpha >= 1f;
+            if (opaque) batch.disableBlending();
+            batch.setColor(1f, 1f, 1f, layer.alpha);
+            // v runs top to bottom; shifting both ends by the offset slides the image downwards
+            batch.draw(layer.texture, x, y, width, height, 0f, 1f + layer.offset, 1f, layer.offset);
+            if (opaque) batch.enableBlending();
+        }
+        batch.setColor(1f, 1f, 1f, 1f);
+    }
+
+    @Override
+    public void dispose() {
+        for (Layer layer : layers) {
+            layer.texture.dispose();
+            if (layer.ownedPixmap != null) layer.ownedPixmap.dispose();
+        }
+        layers.clear();
+    }
+}
@@ -0,0 +1,77 @@
+package com.marccortes.spaceInvaders;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.LongArray;
+
+// Times the launch from create() to the end of the first rendered frame: every phase of
+// create() and every file the resource registry loads is a span, nested by the order spans
+// are opened and closed. finish() logs the breakdown and writes it to PROFILE_FILE as JSON,
+// where the startup benchmark (server module) reads it. Spans opened after finish() are not
+// recorded, so assets reloaded later, like the menu backdrop, do not count.
+// Off unless the JVM runs with -DstartupProfile=true, which the startup benchmark sets: a
+// normal launch records nothing and writes no file.
+class StartupProfiler {
+    static final String PROPERTY = "startupProfile";
+    static final String PROFILE_FILE = "startup_profile.json";
+    static final String FIRST_FRAME = "first frame";
+
+    private final Array<String> names = new Array<>();
+    private final LongArray starts = new LongArray();
+    private final LongArray ends = new LongArray();
+    private final IntArray depths = new IntArray();
+    private final boolean enabled = Boolean.getBoolean(PROPERTY);
+    private int openSpans;
+    private long origin;
+    private boolean finished;
+
+    // Returns the span to pass to end(), or -1 when profiling is off or the profile is finished
+    int begin(String name) {
+        if (!enabled || finished) return -1;
+        long now = System.nanoTime();
+        if (names.size == 0) origin = now;
+        names.add(name);
+        starts.add(now);
+        ends.add(0L);
+        depths.add(openSpans++);
+        return names.size - 1;
+    }
+
+    void end(int span) {
+        if (span < 0 || finished) return;
+        ends.set(span, System.nanoTime());
+        openSpans--;
+    }
+
+    // Closes the profile at the end of the first frame
+    void finish() {
+        if (finished || names.size == 0) return;
+        long total = System.nanoTime() - origin;
+        finished = true;
+        StringBuilder json = new StringBuilder(names.size * 80);
+        json.append("{\n  \"first_frame_ms\": ").append(millis(total))
+            .append(",\n  \"spans\": [");
+        for (int i = 0; i < names.size; i++) {
+            long duration = ends.get(i) - starts.get(i);
+            StringBuilder indent = new StringBuilder();
+            for (int d = 0; d < depths.get(i); d++) indent.append("  ");
+            Gdx.app.log("StartupProfiler", indent + names.get(i) + ": " + millis(duration) + " ms");
+            json.append(i == 0 ? "\n" : ",\n").append("    {\"name\": \"").append(names.get(i).replace("\"", "\\\""))
+                .append("\", \"depth\": ").append(depths.get(i))
+                .append(", \"start_ms\": ").append(millis(starts.get(i) - origin))
+                .append(", \"ms\": ").append(millis(duration)).append('}');
+        }
+        json.append("\n  ]\n}\n");
+        Gdx.app.log("StartupProfiler", FIRST_FRAME + " after " + millis(total) + " ms");
+        try {
+            Gdx.files.local(PROFILE_FILE).writeString(json.toString(), false, "UTF-8");
+        } catch (Exception e) {
+            Gdx.app.error("StartupProfiler", "Error writing " + PROFILE_FILE + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static String millis(long nanos) {
+        return String.valueOf(Math.round(nanos / 1000.0) / 1000.0);
+    }
+}
@@ -0,0 +1,77 @@
+package com.marccortes.spaceInvaders;
+
+import com.badlogic.gdx.Application;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.TextureData;
+import com.badlogic.gdx.graphics.glutils.KTXTextureData;
+
+// Chooses between the PNG assets and the GPU-compressed KTX copies made at build time
+// (android/textures.gradle). A compressed texture stays compressed in video memory, so it
+// takes a quarter of the space or less and uploads without decoding. Copies live under
+// compressed/<format>/ with the PNG's path and a .ktx extension; the first format the GPU
+// decodes natively wins:
+// - astc: devices exposing GL_KHR_texture_compression_astc_ldr
+// - etc2: any OpenGL ES 3.0 context, where ETC2 is mandatory
+// A texture without a copy in that format, and every desktop build, loads the PNG.
+// Copies may carry a mip chain, for sprites drawn well below their size; those get a
+// mipmapped filter.
+final class TextureFormats {
+    static final String ASTC = "astc", ETC2 = "etc2";
+    private static final String COMPRESSED_DIR = "compressed/";
+
+    private static String format;
+    private static boolean formatChosen;
+
+    private TextureFormats() {
+    }
+
+    static Texture load(String path) {
+        return create(data(path));
+    }
+
+    // The file a texture would load from, not read yet. Call on the render thread, since the
+    // first call queries the GL; prepare() on the result then decodes it on any thread.
+    static TextureData data(String path) {
+        FileHandle compressed = findCompressed(path);
+        if (compressed == null) return TextureData.Factory.loadFromFile(Gdx.files.internal(path), false);
+        // Mip levels come from the file; a compressed texture cannot have them generated
+        return new KTXTextureData(compressed, false);
+    }
+
+    // Uploads the data, decoding it first unless it is already prepared; render thread only
+    static Texture create(TextureData data) {
+        Texture texture = new Texture(data);
+        if (data instanceof KTXTextureData && ((KTXTextureData) data).getNumberOfMipMapLevels() > 1) {
+            texture.setFilter(Texture.TextureFilter.MipMapLinearNearest, Texture.TextureFilter.Linear);
+        }
+        return texture;
+    }
+
+    // The best compressed format this device decodes natively, or null to use PNGs
+    static String getFormat() {
+        if (!formatChosen) {
+            format = chooseFormat();
+            formatChosen = true;
+            Gdx.app.log("TextureFormats", "Using " + (format != null ? format + " textures" : "PNG textures"));
+        }
+        return format;
+    }
+
+    private static FileHandle findCompressed(String path) {
+        String format = getFormat();
+        if (format == null || !path.endsWith(".png")) return null;
+        FileHandle file = Gdx.files.internal(COMPRESSED_DIR + format + "/" + path.substring(0, path.length() - 4) + ".ktx");
+        return file.exists() ? file : null;
+    }
+
+    private static String chooseFormat() {
+        // Desktop drivers often decode ETC2 and ASTC in software, and no copies are packed there
+        Application.ApplicationType type = Gdx.app.getType();
+        if (type != Application.ApplicationType.Android && type != Application.ApplicationType.iOS) return null;
+        if (Gdx.graphics.supportsExtension("GL_KHR_texture_compression_astc_ldr")) return ASTC;
+        if (Gdx.gl30 != null) return ETC2;
+        return null;
+    }
+}
@@ -0,0 +1,30 @@
+package com.marccortes.spaceInvaders;
+
+import java.nio.ByteBuffer;
+
+// Unsigned LEB128 integers: 7 bits per byte, low bits first, the high bit set on every byte
+// but the last. Shared by the replay codec and the match server's state deltas.
+public final class Varint {
+    private Varint() {
+    }
+
+    public static void write(ByteBuffer out, int value) {
+        while ((value & ~0x7f) != 0) {
+            out.put((byte) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    public static int read(ByteBuffer in) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            value |= (b & 0x7f) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+}
@@ -0,0 +1,85 @@
+package com.marccortes.spaceInvaders;
+
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.RandomXS128;
+
+// Lays out the waves of endless mode. A wave depends only on the run's seed and its number,
+// so a run can be replayed, and restoring a snapshot only needs those two values. Difficulty
+// grows with the wave number: more rows, more shooters and a faster march, up to fixed caps.
+// Every BOSS_INTERVAL-th wave is the boss instead of a formation.
+// One instance is reused for every wave; generate() overwrites the previous layout.
+final class WaveGenerator {
+    static final int BOSS_INTERVAL = 5;
+    static final int MAX_ROWS = 6, MAX_COLUMNS = 7;
+    private static final int BLOCK = 0, CHECKER = 1, PYRAMID = 2, DIAMOND = 3, COLUMNS = 4, SHAPE_COUNT = 5;
+    private static final String[] SHAPE_NAMES = { "block", "checker", "pyramid", "diamond", "columns" };
+
+    // Layout of the last generated wave
+    int rows, columns, shape;
+    final boolean[] occupied = new boolean[MAX_ROWS * MAX_COLUMNS];
+    final boolean[] shooters = new boolean[MAX_ROWS * MAX_COLUMNS];
+    float moveSpeed;
+
+    private final RandomXS128 random = new RandomXS128();
+
+    static boolean isBossWave(int wave) {
+        return wave % BOSS_INTERVAL == 0;
+    }
+
+    void generate(long seed, int wave) {
+        random.setSeed(seed ^ wave * 0x9E3779B97F4A7C15L);
+        rows = Math.min(MAX_ROWS, 2 + wave / 3 + random.nextInt(2));
+        columns = MAX_COLUMNS - random.nextInt(3);
+        shape = random.nextInt(SHAPE_COUNT);
+        float shooterRatio = Math.min(0.6f, 0.15f + wave * 0.025f);
+        moveSpeed = Math.min(560f, 180f + wave * 14f) * MathUtils.lerp(0.9f, 1.1f, random.nextFloat());
+
+        int count = 0;
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < columns; col++) {
+                int cell = row * MAX_COLUMNS + col;
+                occupied[cell] = isInShape(row, col);
+                shooters[cell] = occupied[cell] && random.nextFloat() < shooterRatio;
+                if (occupied[cell]) count++;
+            }
+        }
+        // A shape that came out empty on a narrow grid falls back to a full block
+        if (count == 0) {
+            shape = BLOCK;
+            for (int row = 0; row < rows; row++) {
+                for (int col = 0; col < columns; col++) occupied[row * MAX_COLUMNS + col] = true;
+            }
+        }
+    }
+
+    boolean isOccupied(int row, int col) {
+        return occupied[row * MAX_COLUMNS + col];
+    }
+
+    boolean isShooter(int row, int col) {
+        return shooters[row * MAX_COLUMNS + col];
+    }
+
+    String getShapeName() {
+        return SHAPE_NAMES[shape];
+    }
+
+    // Row 0 is the top row of the formation
+    private boolean isInShape(int row, int col) {
+        int center = columns / 2;
+        switch (shape) {
+            case CHECKER:
+                return (row + col) % 2 == 0;
+            case PYRAMID: // narrowest at the bottom
+                return Math.abs(col - center) <= rows - 1 - row + (columns - rows) / 2;
+            case DIAMOND: {
+                int middleRow = rows / 2;
+                return Math.abs(col - center) + Math.abs(row - middleRow) <= Math.max(center, middleRow);
+            }
+            case COLUMNS:
+                return col % 2 == 0;
+            default:
+                return true;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.marccortes.spaceInvaders.lwjgl3;
 
+import com.badlogic.gdx.ApplicationListener;
 import com.badlogic.gdx.backends.lwjgl3.Lwjgl3Application;
 import com.badlogic.gdx.backends.lwjgl3.Lwjgl3ApplicationConfiguration;
 import com.marccortes.spaceInvaders.MainGame;
@@ -7,12 +8,16 @@ import com.marccortes.spaceInvaders.MainGame;
 /** Launches the desktop (LWJGL3) application. */
 public class Lwjgl3Launcher {
     public static void main(String[] args) {
+        if (SharedArchive.restartIfRequired(args)) return; // Packaged builds only; see SharedArchive.
         if (StartupHelper.startNewJvmIfRequired()) return; // This handles macOS support and helps on Windows.
         createApplication();
     }
 
     private static Lwjgl3Application createApplication() {
-        return new Lwjgl3Application(new MainGame(), getDefaultConfiguration());
+        ApplicationListener game = new MainGame();
+        // Exits after the first frame, for timing launches; see the compareStartup task
+        if (Boolean.getBoolean("startupProbe")) game = new StartupProbe(game);
+        return new Lwjgl3Application(game, getDefaultConfiguration());
     }
 
     private static Lwjgl3ApplicationConfiguration getDefaultConfiguration() {
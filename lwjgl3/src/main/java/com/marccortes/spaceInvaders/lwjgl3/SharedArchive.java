@@ -0,0 +1,99 @@
+package com.marccortes.spaceInvaders.lwjgl3;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Gives a packaged launch a class-data sharing archive in the player's cache directory. The
+ * packaged launchers cannot pass an absolute archive path: a relative one resolves against the
+ * working directory, which is {@code /} for apps started from Finder, and the install directory
+ * may be read-only. So the launcher only sets {@code -DsharedArchive=true}, and this restarts
+ * the game once on the bundled JDK with {@code -XX:+AutoCreateSharedArchive} and an absolute
+ * {@code -XX:SharedArchiveFile}, then waits for it. The first launch writes the archive and
+ * later ones map it. The first JVM only loads this class before it waits. If the JDK is older
+ * than 19, or the cache directory or the bundled {@code java} is missing, the game runs in
+ * this JVM without CDS.
+ */
+class SharedArchive {
+    static final String PROPERTY = "sharedArchive";
+    private static final String ARCHIVE_OPTION = "-XX:SharedArchiveFile=";
+    private static final String CACHE_DIRECTORY = "com.marccortes.spaceInvaders";
+    private static final String ARCHIVE_FILE = "startup.jsa";
+    private static final int MIN_JAVA_VERSION = 19; // for -XX:+AutoCreateSharedArchive
+
+    private SharedArchive() {
+    }
+
+    /** Returns whether the game ran in a restarted JVM, so this one should not start it again. */
+    static boolean restartIfRequired(String[] args) {
+        if (!Boolean.getBoolean(PROPERTY) || javaVersion() < MIN_JAVA_VERSION) return false;
+        List<String> inputArguments = ManagementFactory.getRuntimeMXBean().getInputArguments();
+        for (String argument : inputArguments) {
+            if (argument.startsWith(ARCHIVE_OPTION)) return false; // this is the restarted JVM
+        }
+        String osName = System.getProperty("os.name").toLowerCase();
+        File java = new File(System.getProperty("java.home"), "bin" + File.separator + (osName.contains("windows") ? "java.exe" : "java"));
+        File directory = cacheDirectory(osName);
+        if (!java.isFile() || directory == null || !(directory.isDirectory() || directory.mkdirs())) {
+            System.err.println("Starting without a class-data sharing archive");
+            return false;
+        }
+
+        List<String> command = new ArrayList<>();
+        command.add(java.getPath());
+        command.add("-XX:+AutoCreateSharedArchive");
+        command.add(ARCHIVE_OPTION + new File(directory, ARCHIVE_FILE).getAbsolutePath());
+        // The packaged launcher starts macOS apps on the first thread itself; a plain JVM needs the flag
+        if (osName.contains("mac")) command.add("-XstartOnFirstThread");
+        for (String argument : inputArguments) {
+            // A launcher embedding the JVM passes the class path as a property; it goes in -cp below
+            if (!argument.startsWith("-Djava.class.path=")) command.add(argument);
+        }
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(Lwjgl3Launcher.class.getName());
+        command.addAll(Arrays.asList(args));
+        Process process;
+        try {
+            process = new ProcessBuilder(command).inheritIO().start();
+        } catch (IOException e) {
+            System.err.println("Could not restart with a class-data sharing archive: " + e);
+            return false;
+        }
+        try {
+            process.waitFor();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return true;
+    }
+
+    /** The feature release of the running JVM; Java 8 reports itself as 1.8. */
+    private static int javaVersion() {
+        String version = System.getProperty("java.specification.version", "1");
+        try {
+            return version.startsWith("1.") ? 1 : Integer.parseInt(version);
+        } catch (NumberFormatException e) {
+            return 1;
+        }
+    }
+
+    /** The per-user cache directory of the platform, or null when there is no home directory. */
+    private static File cacheDirectory(String osName) {
+        String home = System.getProperty("user.home");
+        if (osName.contains("windows")) {
+            String localAppData = System.getenv("LOCALAPPDATA");
+            if (localAppData != null) return new File(localAppData, CACHE_DIRECTORY);
+        } else if (osName.contains("mac")) {
+            if (home != null) return new File(home, "Library/Caches/" + CACHE_DIRECTORY);
+        } else {
+            String cacheHome = System.getenv("XDG_CACHE_HOME");
+            if (cacheHome != null && !cacheHome.isEmpty()) return new File(cacheHome, CACHE_DIRECTORY);
+        }
+        return home != null ? new File(home, ".cache" + File.separator + CACHE_DIRECTORY) : null;
+    }
+}
@@ -0,0 +1,74 @@
+package com.marccortes.spaceInvaders.lwjgl3;
+
+import com.badlogic.gdx.ApplicationListener;
+import com.badlogic.gdx.Gdx;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+
+/**
+ * Wraps the game to measure how quickly a launch gets to its first frame. After the first
+ * frame has been rendered it logs one line with the peak resident memory, then exits. The
+ * {@code compareStartup} task (nativeimage.gradle) times the launch from outside up to that
+ * line, for both the JVM jar and the native image. Enabled with {@code -DstartupProbe=true}.
+ */
+class StartupProbe implements ApplicationListener {
+    static final String MARKER = "first frame";
+
+    private final ApplicationListener game;
+    private boolean reported;
+
+    StartupProbe(ApplicationListener game) {
+        this.game = game;
+    }
+
+    @Override
+    public void create() {
+        game.create();
+    }
+
+    @Override
+    public void resize(int width, int height) {
+        game.resize(width, height);
+    }
+
+    @Override
+    public void render() {
+        game.render();
+        if (reported) return;
+        reported = true;
+        Gdx.app.log("StartupProbe", MARKER + ", peak RSS " + readPeakResidentKilobytes() + " kB");
+        Gdx.app.exit();
+    }
+
+    @Override
+    public void pause() {
+        game.pause();
+    }
+
+    @Override
+    public void resume() {
+        game.resume();
+    }
+
+    @Override
+    public void dispose() {
+        game.dispose();
+    }
+
+    /** VmHWM from /proc; -1 where that is not available (macOS, Windows). */
+    private static long readPeakResidentKilobytes() {
+        try (BufferedReader reader = new BufferedReader(new FileReader("/proc/self/status"))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("VmHWM:")) {
+                    return Long.parseLong(line.substring(6).trim().split("\\s+")[0]);
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            Gdx.app.error("StartupProbe", "Could not read peak RSS: " + e.getMessage());
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,362 @@
+package com.marccortes.spaceInvaders.server;
+
+import com.badlogic.gdx.Application;
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.backends.headless.HeadlessApplicationConfiguration;
+import com.badlogic.gdx.utils.Array;
+import com.marccortes.spaceInvaders.HeadlessMatch;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+// Authoritative host for many independent matches.
+// A single selector thread accepts clients and moves all bytes. On every tick the matches are
+// split across a small worker pool, stepped with the latest input their client sent, and
+// their state is encoded as a delta against the last state that client was sent. Each
+// connection plays one match at a time; a finished match is reported and replaced.
+//
+// Client to server: 8-byte input frames (int last tick seen, int input).
+// Server to client: int frame length, int tick, byte flags, int score, int CRC32 of the full
+// state, then a StateDelta. The checksum lets a client confirm the state it rebuilt.
+public class MatchServer implements Runnable, Closeable {
+    static final int DEFAULT_PORT = 7777;
+    static final int INPUT_FRAME_SIZE = 8;
+    static final int FRAME_HEADER_SIZE = 17;
+    static final byte FLAG_KEYFRAME = 1, FLAG_FINISHED = 2;
+    private static final long TICK_NANOS = (long) (HeadlessMatch.TICK_DURATION * 1e9);
+    private static final int MAX_TICKS_BEHIND = 5;
+    private static final int OUTBOX_SIZE = 64 * 1024;
+    private static final int SAMPLE_CAPACITY = 1 << 16;
+
+    private static class Connection {
+        final SocketChannel channel;
+        final SelectionKey key;
+        final ByteBuffer inbox = ByteBuffer.allocate(INPUT_FRAME_SIZE * 64);
+        final ByteBuffer outbox = ByteBuffer.allocateDirect(OUTBOX_SIZE);
+        final StateDelta.State sent = new StateDelta.State();
+        final StateDelta.State current = new StateDelta.State();
+        final CRC32 checksum = new CRC32();
+        ByteBuffer stateBuffer;
+        ByteBuffer frame = ByteBuffer.allocate(8192);
+        HeadlessMatch match;
+        volatile int input;
+        boolean keyframe;
+
+        Connection(SocketChannel channel, SelectionKey key) {
+            this.channel = channel;
+            this.key = key;
+        }
+    }
+
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private final ExecutorService workers;
+    private final List<Callable<Void>> stepTasks = new ArrayList<>();
+    private final Array<Connection> connections = new Array<>(); // selector thread only
+    private volatile boolean running = true;
+    private long nextSeed = 1;
+    private int tick;
+
+    // Statistics
+    private final long[] tickSamples = new long[SAMPLE_CAPACITY];
+    private int sampleCount;
+    private final AtomicLong matchStepNanos = new AtomicLong();
+    private final AtomicLong matchSteps = new AtomicLong();
+    private long framesSent, frameBytesSent, framesDropped;
+    private int matchesFinished, bestScore, peakConnections;
+
+    public MatchServer(int port, int workerCount) throws IOException {
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.configureBlocking(false);
+        serverChannel.bind(new InetSocketAddress("127.0.0.1", port));
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        workers = Executors.newFixedThreadPool(workerCount, runnable -> {
+            Thread thread = new Thread(runnable, "MatchWorker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < workerCount; i++) {
+            final int worker = i;
+            stepTasks.add(() -> {
+                int count = connections.size;
+                for (int c = worker * count / workerCount; c < (worker + 1) * count / workerCount; c++) {
+                    stepMatch(connections.get(c));
+                }
+                return null;
+            });
+        }
+    }
+
+    public int getPort() throws IOException {
+        return ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+    }
+
+    @Override
+    public void run() {
+        long nextTick = System.nanoTime();
+        try {
+            while (running) {
+                long wait = nextTick - System.nanoTime();
+                if (wait > 1000000) {
+                    selector.select(wait / 1000000);
+                } else {
+                    selector.selectNow();
+                }
+                handleSelectedKeys();
+                long now = System.nanoTime();
+                if (now >= nextTick) {
+                    runTick();
+                    nextTick += TICK_NANOS;
+                    // After a long stall, start over instead of bursting to catch up
+                    if (now - nextTick > MAX_TICKS_BEHIND * TICK_NANOS) nextTick = now + TICK_NANOS;
+                }
+            }
+        } catch (Exception e) {
+            Gdx.app.error("MatchServer", "Server loop failed: " + e.getMessage(), e);
+        } finally {
+            closeQuietly();
+        }
+    }
+
+    private void handleSelectedKeys() throws IOException {
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+            SelectionKey key = keys.next();
+            keys.remove();
+            if (!key.isValid()) continue;
+            if (key.isAcceptable()) {
+                accept();
+                continue;
+            }
+            Connection connection = (Connection) key.attachment();
+            try {
+                if (key.isReadable()) read(connection);
+                if (key.isValid() && key.isWritable()) flush(connection);
+            } catch (IOException e) {
+                disconnect(connection);
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+            Connection connection = new Connection(channel, key);
+            key.attach(connection);
+            startMatch(connection);
+            connections.add(connection);
+            peakConnections = Math.max(peakConnections, connections.size);
+        }
+    }
+
+    private void startMatch(Connection connection) {
+        if (connection.match != null) connection.match.dispose();
+        connection.match = new HeadlessMatch(nextSeed++, false);
+        connection.input = 0;
+        // A fresh match is sent against an empty state, i.e. in full
+        connection.sent.length = 0;
+        connection.keyframe = true;
+    }
+
+    private void read(Connection connection) throws IOException {
+        if (connection.channel.read(connection.inbox) < 0) {
+            disconnect(connection);
+            return;
+        }
+        ByteBuffer inbox = connection.inbox;
+        inbox.flip();
+        while (inbox.remaining() >= INPUT_FRAME_SIZE) {
+            inbox.getInt(); // last tick the client has seen; TCP keeps frames in order, so it is informational
+            connection.input = inbox.getInt();
+        }
+        inbox.compact();
+    }
+
+    private void runTick() {
+        long start = System.nanoTime();
+        for (int i = 0; i < connections.size; i++) {
+            Connection connection = connections.get(i);
+            if (connection.match.isFinished()) {
+                matchesFinished++;
+                bestScore = Math.max(bestScore, connection.match.getScore());
+                startMatch(connection);
+            }
+        }
+        try {
+            workers.invokeAll(stepTasks);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+            return;
+        }
+        for (int i = connections.size - 1; i >= 0; i--) {
+            Connection connection = connections.get(i);
+            queueFrame(connection);
+            try {
+                flush(connection);
+            } catch (IOException e) {
+                disconnect(connection);
+            }
+        }
+        tick++;
+        tickSamples[sampleCount++ % SAMPLE_CAPACITY] = System.nanoTime() - start;
+    }
+
+    // Worker thread: advances one match and encodes its new state into the connection's frame
+    private void stepMatch(Connection connection) {
+        long start = System.nanoTime();
+        HeadlessMatch match = connection.match;
+        match.step(connection.input, 0);
+        connection.stateBuffer = match.writeState(connection.stateBuffer);
+        connection.current.set(connection.stateBuffer);
+
+        int required = FRAME_HEADER_SIZE + StateDelta.maxEncodedSize(connection.current.length);
+        if (connection.frame.capacity() < required) connection.frame = ByteBuffer.allocate(required * 2);
+        ByteBuffer frame = connection.frame;
+        frame.clear();
+        frame.putInt(0); // length, patched below
+        frame.putInt(match.getTick());
+        frame.put((byte) ((connection.keyframe ? FLAG_KEYFRAME : 0) | (match.isFinished() ? FLAG_FINISHED : 0)));
+        frame.putInt(match.getScore());
+        frame.putInt(checksum(connection.checksum, connection.current));
+        StateDelta.encode(connection.sent, connection.current, frame);
+        frame.putInt(0, frame.position() - 4);
+        frame.flip();
+        matchStepNanos.addAndGet(System.nanoTime() - start);
+        matchSteps.incrementAndGet();
+    }
+
+    static int checksum(CRC32 crc, StateDelta.State state) {
+        crc.reset();
+        crc.update(state.bytes, 0, state.length);
+        return (int) crc.getValue();
+    }
+
+    // Moves the encoded frame to the outbox. A client too slow to take it skips this frame;
+    // the next one is still encoded against the last state it actually received.
+    private void queueFrame(Connection connection) {
+        ByteBuffer frame = connection.frame;
+        if (connection.outbox.remaining() < frame.remaining()) {
+            framesDropped++;
+            return;
+        }
+        framesSent++;
+        frameBytesSent += frame.remaining();
+        connection.outbox.put(frame);
+        connection.sent.copyFrom(connection.current);
+        connection.keyframe = false;
+    }
+
+    private void flush(Connection connection) throws IOException {
+        ByteBuffer outbox = connection.outbox;
+        outbox.flip();
+        connection.channel.write(outbox);
+        boolean pending = outbox.hasRemaining();
+        outbox.compact();
+        connection.key.interestOps(pending ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+    }
+
+    private void disconnect(Connection connection) {
+        connection.key.cancel();
+        try {
+            connection.channel.close();
+        } catch (IOException e) {
+            // Already gone
+        }
+        if (connection.match != null) connection.match.dispose();
+        connections.removeValue(connection, true);
+    }
+
+    public void printReport(PrintStream out, int workerCount) {
+        int samples = Math.min(sampleCount, SAMPLE_CAPACITY);
+        long[] sorted = Arrays.copyOf(tickSamples, samples);
+        Arrays.sort(sorted);
+        long steps = Math.max(1, matchSteps.get());
+        double stepMicros = matchStepNanos.get() / 1000.0 / steps;
+        // One core can keep this many matches at 60 ticks per second, from the measured cost per match tick
+        double matchesPerCore = 1e6 / (stepMicros * (1 / HeadlessMatch.TICK_DURATION));
+        out.printf("ticks: %d, peak connections: %d, workers: %d%n", tick, peakConnections, workerCount);
+        out.printf("tick latency ms: p50 %.3f, p90 %.3f, p99 %.3f, max %.3f%n",
+            percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.99), percentile(sorted, 1.0));
+        out.printf("match tick cost: %.1f us, matches per core at 60 Hz: %.0f%n", stepMicros, matchesPerCore);
+        out.printf("frames sent: %d (%.0f bytes avg), dropped: %d%n", framesSent,
+            framesSent > 0 ? (double) frameBytesSent / framesSent : 0, framesDropped);
+        out.printf("matches finished: %d, best score: %d%n", matchesFinished, bestScore);
+    }
+
+    private static double percentile(long[] sorted, double fraction) {
+        if (sorted.length == 0) return 0;
+        int index = Math.min(sorted.length - 1, (int) Math.ceil(fraction * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    public void stop() {
+        running = false;
+        selector.wakeup();
+    }
+
+    @Override
+    public void close() {
+        stop();
+    }
+
+    private void closeQuietly() {
+        workers.shutdownNow();
+        for (Connection connection : connections) {
+            if (connection.match != null) connection.match.dispose();
+            try {
+                connection.channel.close();
+            } catch (IOException e) {
+                // Shutting down anyway
+            }
+        }
+        connections.clear();
+        try {
+            serverChannel.close();
+            selector.close();
+        } catch (IOException e) {
+            Gdx.app.error("MatchServer", "Error closing server: " + e.getMessage(), e);
+        }
+    }
+
+    // Provides Gdx.app and Gdx.files for the simulation without a window or a render loop
+    static void initializeHeadless() {
+        HeadlessApplicationConfiguration configuration = new HeadlessApplicationConfiguration();
+        configuration.updatesPerSecond = -1;
+        new HeadlessApplication(new ApplicationAdapter() {}, configuration);
+        // The game logs every tick, which would drown a server hosting hundreds of matches
+        Gdx.app.setLogLevel(Application.LOG_ERROR);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        int workerCount = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        initializeHeadless();
+        MatchServer server = new MatchServer(port, workerCount);
+        System.out.println("Match server listening on port " + server.getPort() + " with " + workerCount + " workers");
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> server.printReport(System.out, workerCount)));
+        server.run();
+    }
+}
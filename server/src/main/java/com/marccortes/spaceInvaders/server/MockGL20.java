@@ -0,0 +1,42 @@
+package com.marccortes.spaceInvaders.server;
+
+import com.badlogic.gdx.graphics.GL20;
+
+import java.lang.reflect.Proxy;
+import java.nio.IntBuffer;
+
+// A GL20 that accepts every call and draws nothing, so the full game (textures, shaders,
+// sprite batches, the stage) can run on the headless backend, which has no GL of its own.
+// Object names and locations come from a counter, shaders always compile and link, and
+// other queries return zero.
+final class MockGL20 {
+    private static final int GL_COMPILE_STATUS = 0x8B81, GL_LINK_STATUS = 0x8B82;
+
+    private MockGL20() {
+    }
+
+    static GL20 create() {
+        int[] names = { 0 };
+        return (GL20) Proxy.newProxyInstance(GL20.class.getClassLoader(), new Class<?>[] { GL20.class },
+            (proxy, method, args) -> {
+                String name = method.getName();
+                Class<?> type = method.getReturnType();
+                if (method.getDeclaringClass() == Object.class) {
+                    if (name.equals("equals")) return proxy == args[0];
+                    return name.equals("hashCode") ? System.identityHashCode(proxy) : "MockGL20";
+                }
+                if ((name.equals("glGetShaderiv") || name.equals("glGetProgramiv")) && args[2] instanceof IntBuffer) {
+                    int pname = (Integer) args[1];
+                    IntBuffer result = (IntBuffer) args[2];
+                    result.put(result.position(), pname == GL_COMPILE_STATUS || pname == GL_LINK_STATUS ? 1 : 0);
+                    return null;
+                }
+                // Also every uniform location, so shaders find the uniforms they set
+                if (type == int.class) return ++names[0];
+                if (type == boolean.class) return false;
+                if (type == float.class) return 0f;
+                if (type == String.class) return "";
+                return null;
+            });
+    }
+}
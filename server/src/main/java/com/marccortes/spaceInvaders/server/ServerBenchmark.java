@@ -0,0 +1,124 @@
+package com.marccortes.spaceInvaders.server;
+
+import com.badlogic.gdx.math.RandomXS128;
+import com.marccortes.spaceInvaders.HeadlessMatch;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.zip.CRC32;
+
+// End-to-end load test on localhost.
+// Starts a MatchServer, connects the given number of simulated clients over TCP and lets them
+// play for a while: every tick each client sends a wandering, mostly firing input, then
+// applies the state deltas it receives and checks the rebuilt state: it must be a match
+// state, and its checksum must equal the one the server computed over its own state. Prints
+// the server's throughput and tick latency and what the clients observed.
+public class ServerBenchmark {
+    private static class Client {
+        final SocketChannel channel;
+        final ByteBuffer inbox = ByteBuffer.allocate(256 * 1024);
+        final ByteBuffer output = ByteBuffer.allocate(MatchServer.INPUT_FRAME_SIZE);
+        final StateDelta.State state = new StateDelta.State();
+        final CRC32 checksum = new CRC32();
+        float targetX;
+        float direction = 1;
+        int lastTick;
+        long frames, bytes, invalidStates, finishedMatches;
+
+        Client(SocketChannel channel, float targetX) {
+            this.channel = channel;
+            this.targetX = targetX;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int clientCount = args.length > 0 ? Integer.parseInt(args[0]) : 256;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int workerCount = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+        MatchServer.initializeHeadless();
+        MatchServer server = new MatchServer(0, workerCount);
+        Thread serverThread = new Thread(server, "MatchServer");
+        serverThread.start();
+
+        RandomXS128 random = new RandomXS128(42);
+        Client[] clients = new Client[clientCount];
+        for (int i = 0; i < clientCount; i++) {
+            SocketChannel channel = SocketChannel.open(new InetSocketAddress("127.0.0.1", server.getPort()));
+            channel.socket().setTcpNoDelay(true);
+            channel.configureBlocking(false);
+            clients[i] = new Client(channel, random.nextFloat() * HeadlessMatch.WORLD_WIDTH);
+        }
+        System.out.println("Connected " + clientCount + " clients, running for " + seconds + " s with " + workerCount + " workers");
+
+        long tickNanos = (long) (HeadlessMatch.TICK_DURATION * 1e9);
+        long end = System.nanoTime() + seconds * 1000000000L;
+        long nextTick = System.nanoTime();
+        while (System.nanoTime() < end) {
+            for (Client client : clients) {
+                sendInput(client, random);
+                receive(client);
+            }
+            nextTick += tickNanos;
+            long sleep = nextTick - System.nanoTime();
+            if (sleep > 0) Thread.sleep(sleep / 1000000, (int) (sleep % 1000000));
+        }
+
+        server.stop();
+        serverThread.join(2000);
+        long frames = 0, bytes = 0, invalid = 0, finished = 0;
+        for (Client client : clients) {
+            frames += client.frames;
+            bytes += client.bytes;
+            invalid += client.invalidStates;
+            finished += client.finishedMatches;
+            client.channel.close();
+        }
+        System.out.println("--- server ---");
+        server.printReport(System.out, workerCount);
+        System.out.println("--- clients ---");
+        System.out.printf("frames received: %d (%.0f bytes avg), invalid states: %d, finished matches: %d%n",
+            frames, frames > 0 ? (double) bytes / frames : 0, invalid, finished);
+        System.exit(invalid == 0 ? 0 : 1);
+    }
+
+    private static void sendInput(Client client, RandomXS128 random) throws IOException {
+        client.targetX += client.direction * 12;
+        if (client.targetX < 0 || client.targetX > HeadlessMatch.WORLD_WIDTH || random.nextFloat() < 0.01f) {
+            client.direction = -client.direction;
+        }
+        client.output.clear();
+        client.output.putInt(client.lastTick);
+        client.output.putInt(HeadlessMatch.encodeInput(client.targetX, random.nextFloat() < 0.9f));
+        client.output.flip();
+        // Non-blocking: a full socket buffer accepts only part of the frame
+        while (client.output.hasRemaining()) client.channel.write(client.output);
+    }
+
+    private static void receive(Client client) throws IOException {
+        ByteBuffer inbox = client.inbox;
+        client.channel.read(inbox);
+        inbox.flip();
+        while (inbox.remaining() >= 4 && inbox.remaining() >= 4 + inbox.getInt(inbox.position())) {
+            int length = inbox.getInt();
+            int frameEnd = inbox.position() + length;
+            client.lastTick = inbox.getInt();
+            byte flags = inbox.get();
+            inbox.getInt(); // score
+            int expectedChecksum = inbox.getInt();
+            if ((flags & MatchServer.FLAG_KEYFRAME) != 0) client.state.length = 0;
+            StateDelta.decode(inbox, client.state);
+            inbox.position(frameEnd);
+            client.frames++;
+            client.bytes += 4 + length;
+            if (!HeadlessMatch.isValidState(ByteBuffer.wrap(client.state.bytes, 0, client.state.length)) ||
+                MatchServer.checksum(client.checksum, client.state) != expectedChecksum) {
+                client.invalidStates++;
+            }
+            if ((flags & MatchServer.FLAG_FINISHED) != 0) client.finishedMatches++;
+        }
+        inbox.compact();
+    }
+}
@@ -0,0 +1,421 @@
+package com.marccortes.spaceInvaders.server;
+
+import com.badlogic.gdx.ApplicationListener;
+import com.badlogic.gdx.ApplicationLogger;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Graphics;
+import com.badlogic.gdx.Input;
+import com.badlogic.gdx.InputMultiplexer;
+import com.badlogic.gdx.InputProcessor;
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.backends.headless.HeadlessApplicationConfiguration;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.scenes.scene2d.Actor;
+import com.badlogic.gdx.scenes.scene2d.Group;
+import com.badlogic.gdx.scenes.scene2d.Stage;
+import com.badlogic.gdx.scenes.scene2d.ui.TextButton;
+import com.marccortes.spaceInvaders.MainGame;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+// Plays the full game for a long run on the headless backend with a mock GL, the way a player
+// would: synthetic clicks on the menu buttons start matches, alternating campaign and endless,
+// and synthetic keys steer and fire through the waves and the final boss. The player does not
+// dodge, so campaign matches run with infinite lives to get to the boss and win; endless
+// matches run with normal lives and end in defeat. Every frame runs at
+// a fixed 1/60 s step, as fast as the CPU allows. Fails when the 99th percentile of the frame
+// CPU time is over budget, when the heap grew past the limit between the end of the warm-up
+// and the end of the run, when the run never reached both ACTIVE and FINAL_BOSS, or when
+// anything was logged as an error: the game catches and logs exceptions in its update and
+// render paths, and here each of those counts as a failure instead of scrolling past. Each
+// replay written at the end of a match is read back and compared with the recorded frames;
+// the run also fails when a mismatch is logged or fewer replays were checked than matches ended.
+public class SoakTest {
+    private static final int WIDTH = 1080, HEIGHT = 1920; // a portrait phone, as the menus are laid out for
+    private static final float FRAME_STEP = 1 / 60f;
+    private static final int SETTLE_FRAMES = 10; // lets the UI lay out and animate after a click
+    private static final int STEER_FRAMES = 90;
+    private static final int PAUSE_INTERVAL = 6000; // frames of play between pause and resume
+    private static final int PROGRESS_INTERVAL = 50000;
+    private static final int REPORTED_ERRORS = 10;
+
+    private enum Phase { MAIN_MENU, ACTIVE, PAUSED, SETTINGS, VICTORY, DEFEAT, FINAL_BOSS }
+
+    private final int frames;
+    private final long[] frameCpuNanos;
+    private final EnumMap<Phase, Integer> phaseFrames = new EnumMap<>(Phase.class);
+    private final EnumMap<Phase, Integer> phaseEntries = new EnumMap<>(Phase.class);
+    private final List<String> errors = new ArrayList<>();
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private final Random random = new Random(42);
+    private final MainGame game = new MainGame();
+    private InputProcessor inputProcessor;
+
+    private int frame;
+    private int settle = SETTLE_FRAMES;
+    private int matches;
+    private int playFrames;
+    private int heldKey = -1;
+    private boolean firing;
+    private Phase lastPhase;
+    private long warmHeap = -1, finalHeap = -1;
+    private volatile int replaysChecked; // counted on the game's writer thread
+
+    private SoakTest(int frames) {
+        this.frames = frames;
+        frameCpuNanos = new long[frames];
+        for (Phase phase : Phase.values()) {
+            phaseFrames.put(phase, 0);
+            phaseEntries.put(phase, 0);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int frames = args.length > 0 ? Integer.parseInt(args[0]) : 300000;
+        double budgetMillis = args.length > 1 ? Double.parseDouble(args[1]) : 2;
+        long heapLimitMegabytes = args.length > 2 ? Long.parseLong(args[2]) : 16;
+        System.setProperty("replayCheck", "true"); // the game only reads its replays back when asked
+
+        SoakTest soak = new SoakTest(frames);
+        long start = System.nanoTime();
+        soak.run();
+        System.out.printf("%d frames in %.1f s%n", soak.frame, (System.nanoTime() - start) / 1e9);
+        if (!soak.report(budgetMillis, heapLimitMegabytes)) System.exit(1);
+    }
+
+    private void run() throws InterruptedException {
+        CountDownLatch disposed = new CountDownLatch(1);
+        HeadlessApplicationConfiguration configuration = new HeadlessApplicationConfiguration();
+        configuration.updatesPerSecond = 0;
+        new HeadlessApplication(new ApplicationListener() {
+            @Override
+            public void create() {
+                Gdx.app.setApplicationLogger(new CountingLogger());
+                Gdx.gl = Gdx.gl20 = MockGL20.create();
+                Gdx.graphics = fixedStepGraphics(Gdx.graphics);
+                Gdx.input = syntheticInput();
+                try {
+                    game.create();
+                    game.resize(WIDTH, HEIGHT);
+                } catch (RuntimeException e) {
+                    recordError("SoakTest", "create failed: " + e, e);
+                    disposed.countDown();
+                    throw e;
+                }
+            }
+
+            @Override
+            public void resize(int width, int height) {
+                // The window is WIDTH x HEIGHT for the whole run
+            }
+
+            @Override
+            public void render() {
+                if (frame >= frames) return;
+                drive();
+                long cpuStart = threads.getCurrentThreadCpuTime();
+                try {
+                    game.render();
+                } catch (RuntimeException e) {
+                    recordError("SoakTest", "render threw: " + e, e);
+                }
+                frameCpuNanos[frame++] = threads.getCurrentThreadCpuTime() - cpuStart;
+                if (frame == Math.min(frames / 10, 20000)) warmHeap = usedHeap();
+                if (frame % PROGRESS_INTERVAL == 0) {
+                    System.out.printf("frame %d: %d matches, %s, heap %d MB, %d errors%n",
+                        frame, matches, phaseEntries, usedHeap() >> 20, errors.size());
+                }
+                if (frame == frames) {
+                    finalHeap = usedHeap();
+                    Gdx.app.exit();
+                }
+            }
+
+            @Override
+            public void pause() {
+                game.pause();
+            }
+
+            @Override
+            public void resume() {
+                game.resume();
+            }
+
+            @Override
+            public void dispose() {
+                try {
+                    game.dispose();
+                } finally {
+                    disposed.countDown();
+                }
+            }
+        }, configuration);
+        // Generous: a slow CI host runs a frame in well under 10 ms
+        if (!disposed.await(60 + frames / 100, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("Soak did not finish, stopped at frame " + frame);
+        }
+    }
+
+    // The player: picks the next menu button or the keys to hold, from the phase the game is in
+    private void drive() {
+        Phase phase = Phase.valueOf(game.getPhaseName());
+        phaseFrames.merge(phase, 1, Integer::sum);
+        if (phase != lastPhase) {
+            phaseEntries.merge(phase, 1, Integer::sum);
+            lastPhase = phase;
+            settle = SETTLE_FRAMES;
+        }
+        if (settle > 0) {
+            settle--;
+            return;
+        }
+        switch (phase) {
+            case MAIN_MENU:
+                releaseKeys();
+                // Campaign and endless in turn; the campaign is the one with the final boss
+                boolean campaign = matches % 2 == 0;
+                game.setInfiniteLives(campaign);
+                if (click(campaign ? "Start Game" : "Endless")) matches++;
+                break;
+            case VICTORY:
+            case DEFEAT:
+            case SETTINGS:
+                releaseKeys();
+                click("Back");
+                break;
+            case PAUSED:
+                releaseKeys();
+                click("Resume");
+                break;
+            case ACTIVE:
+            case FINAL_BOSS:
+                play();
+                break;
+        }
+    }
+
+    // Holds fire and sweeps across the screen, changing direction at random every STEER_FRAMES
+    private void play() {
+        if (!firing) {
+            inputProcessor.keyDown(Input.Keys.SPACE);
+            firing = true;
+        }
+        playFrames++;
+        if (playFrames % STEER_FRAMES == 0) {
+            int key = random.nextBoolean() ? Input.Keys.LEFT : Input.Keys.RIGHT;
+            if (key != heldKey) {
+                if (heldKey >= 0) inputProcessor.keyUp(heldKey);
+                inputProcessor.keyDown(key);
+                heldKey = key;
+            }
+        }
+        if (playFrames % PAUSE_INTERVAL == 0) {
+            releaseKeys();
+            click("Pause");
+        }
+    }
+
+    private void releaseKeys() {
+        if (inputProcessor == null) return;
+        if (firing) inputProcessor.keyUp(Input.Keys.SPACE);
+        if (heldKey >= 0) inputProcessor.keyUp(heldKey);
+        firing = false;
+        heldKey = -1;
+    }
+
+    // Taps the visible button with this label through the current input processor, like a mouse
+    // click at its center; false when no such button is on screen, or something else is on top
+    private boolean click(String label) {
+        Stage stage = findStage(inputProcessor);
+        if (stage == null) return false;
+        TextButton button = findButton(stage.getRoot(), label);
+        if (button == null) return false;
+        Vector2 center = button.localToStageCoordinates(new Vector2(button.getWidth() / 2, button.getHeight() / 2));
+        Actor hit = stage.hit(center.x, center.y, true);
+        if (hit == null || !hit.isDescendantOf(button)) return false;
+        stage.stageToScreenCoordinates(center);
+        if (center.x < 0 || center.x >= WIDTH || center.y < 0 || center.y >= HEIGHT) return false;
+        inputProcessor.touchDown((int) center.x, (int) center.y, 0, Input.Buttons.LEFT);
+        inputProcessor.touchUp((int) center.x, (int) center.y, 0, Input.Buttons.LEFT);
+        settle = SETTLE_FRAMES;
+        return true;
+    }
+
+    private static Stage findStage(InputProcessor processor) {
+        if (processor instanceof Stage) return (Stage) processor;
+        if (processor instanceof InputMultiplexer) {
+            for (InputProcessor child : ((InputMultiplexer) processor).getProcessors()) {
+                Stage stage = findStage(child);
+                if (stage != null) return stage;
+            }
+        }
+        return null;
+    }
+
+    private static TextButton findButton(Actor actor, String label) {
+        if (!actor.isVisible()) return null;
+        if (actor instanceof TextButton && label.contentEquals(((TextButton) actor).getText())) return (TextButton) actor;
+        if (actor instanceof Group) {
+            for (Actor child : ((Group) actor).getChildren()) {
+                TextButton button = findButton(child, label);
+                if (button != null) return button;
+            }
+        }
+        return null;
+    }
+
+    private boolean report(double budgetMillis, long heapLimitMegabytes) {
+        boolean passed = true;
+        long[] sorted = Arrays.copyOf(frameCpuNanos, frame);
+        Arrays.sort(sorted);
+        double median = sorted.length > 0 ? sorted[sorted.length / 2] / 1e6 : 0;
+        double p99 = sorted.length > 0 ? sorted[(int) (sorted.length * 0.99)] / 1e6 : 0;
+        double max = sorted.length > 0 ? sorted[sorted.length - 1] / 1e6 : 0;
+        System.out.printf("frame cpu: median %.3f ms, p99 %.3f ms, max %.3f ms (budget p99 %.1f ms)%n",
+            median, p99, max, budgetMillis);
+        System.out.println("matches started: " + matches);
+        System.out.println("frames per phase: " + phaseFrames);
+        System.out.println("phase entries: " + phaseEntries);
+        int matchesEnded = phaseEntries.get(Phase.VICTORY) + phaseEntries.get(Phase.DEFEAT);
+        System.out.println("replays read back: " + replaysChecked + " of " + matchesEnded);
+        if (p99 > budgetMillis) {
+            System.out.println("FAIL: p99 frame cpu time over budget");
+            passed = false;
+        }
+        if (warmHeap >= 0 && finalHeap >= 0) {
+            long growth = finalHeap - warmHeap;
+            System.out.printf("heap after warm-up %d MB, at the end %d MB (limit +%d MB)%n",
+                warmHeap >> 20, finalHeap >> 20, heapLimitMegabytes);
+            if (growth > heapLimitMegabytes << 20) {
+                System.out.println("FAIL: heap grew by " + (growth >> 20) + " MB");
+                passed = false;
+            }
+        }
+        if (replaysChecked < matchesEnded) {
+            System.out.println("FAIL: not every replay was read back");
+            passed = false;
+        }
+        if (phaseFrames.get(Phase.ACTIVE) == 0 || phaseFrames.get(Phase.FINAL_BOSS) == 0) {
+            System.out.println("FAIL: the run did not reach both ACTIVE and FINAL_BOSS");
+            passed = false;
+        }
+        if (!errors.isEmpty()) {
+            System.out.println("FAIL: " + errors.size() + " errors logged, the first ones:");
+            for (int i = 0; i < Math.min(REPORTED_ERRORS, errors.size()); i++) System.out.println("  " + errors.get(i));
+            passed = false;
+        }
+        System.out.println(passed ? "soak passed" : "soak failed");
+        return passed;
+    }
+
+    private synchronized void recordError(String tag, String message, Throwable exception) {
+        errors.add("frame " + frame + " [" + tag + "] " + message);
+        // Stack traces of the first ones only; a bug hit every frame would flood the output
+        if (exception != null && errors.size() <= REPORTED_ERRORS) {
+            System.err.println("frame " + frame + " [" + tag + "] " + message);
+            exception.printStackTrace();
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    // The headless graphics report a 0x0 window and the real time between frames. This one
+    // reports a fixed window and FRAME_STEP, keeps rendering when the game asks for
+    // non-continuous rendering in the menus, and ignores the frame cap, so the run is not
+    // paced to real time.
+    private static Graphics fixedStepGraphics(Graphics headless) {
+        boolean[] continuous = { true };
+        return (Graphics) Proxy.newProxyInstance(Graphics.class.getClassLoader(), new Class<?>[] { Graphics.class },
+            (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "getWidth": case "getBackBufferWidth":
+                        return WIDTH;
+                    case "getHeight": case "getBackBufferHeight":
+                        return HEIGHT;
+                    case "getDeltaTime":
+                        return FRAME_STEP;
+                    case "isContinuousRendering":
+                        return continuous[0];
+                    case "setContinuousRendering":
+                        continuous[0] = (Boolean) args[0];
+                        return null;
+                    case "requestRendering": case "setForegroundFPS":
+                        return null;
+                    default:
+                        try {
+                            return method.invoke(headless, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                }
+            });
+    }
+
+    // Holds the game's input processor so the driver can send it events; no device state
+    private Input syntheticInput() {
+        return (Input) Proxy.newProxyInstance(Input.class.getClassLoader(), new Class<?>[] { Input.class },
+            (proxy, method, args) -> {
+                String name = method.getName();
+                Class<?> type = method.getReturnType();
+                if (method.getDeclaringClass() == Object.class) {
+                    if (name.equals("equals")) return proxy == args[0];
+                    return name.equals("hashCode") ? System.identityHashCode(proxy) : "SyntheticInput";
+                }
+                if (name.equals("setInputProcessor")) {
+                    inputProcessor = (InputProcessor) args[0];
+                    return null;
+                }
+                if (name.equals("getInputProcessor")) return inputProcessor;
+                // Event times too: zero makes the input queue stamp events itself
+                if (type == boolean.class) return false;
+                if (type == int.class) return 0;
+                if (type == long.class) return 0L;
+                if (type == float.class) return 0f;
+                return null;
+            });
+    }
+
+    // Counts the game's errors instead of just printing them; other logging is dropped
+    private class CountingLogger implements ApplicationLogger {
+        @Override
+        public void log(String tag, String message) {
+            if (tag.equals("ReplayCheck")) replaysChecked++;
+        }
+
+        @Override
+        public void log(String tag, String message, Throwable exception) {
+        }
+
+        @Override
+        public void error(String tag, String message) {
+            recordError(tag, message, null);
+        }
+
+        @Override
+        public void error(String tag, String message, Throwable exception) {
+            recordError(tag, message, exception);
+        }
+
+        @Override
+        public void debug(String tag, String message) {
+        }
+
+        @Override
+        public void debug(String tag, String message, Throwable exception) {
+        }
+    }
+}
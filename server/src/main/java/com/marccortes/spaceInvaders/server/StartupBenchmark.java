@@ -0,0 +1,162 @@
+package com.marccortes.spaceInvaders.server;
+
+import com.badlogic.gdx.ApplicationListener;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.backends.headless.HeadlessApplicationConfiguration;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.JsonReader;
+import com.badlogic.gdx.utils.JsonValue;
+import com.marccortes.spaceInvaders.MainGame;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+// Time to first frame of the full game, on the headless backend with a mock GL.
+// Boots MainGame several times in this JVM: the first launch is cold (class loading, JIT),
+// the others warm. Every file, texture, sound and shader is still read and decoded, only
+// the GL calls do nothing. Prints the launches and the slowest spans of the cold one, from
+// the profile the game writes. With a history file, appends one CSV line per run and fails
+// when the warm time regressed by more than REGRESSION_RATIO against recent runs.
+public class StartupBenchmark {
+    private static final String PROFILE_FILE = "startup_profile.json"; // written to the working directory by the game's StartupProfiler
+    private static final int HISTORY_WINDOW = 5;
+    private static final double REGRESSION_RATIO = 1.25;
+    private static final int SLOWEST_SPANS = 10;
+
+    public static void main(String[] args) throws Exception {
+        int launches = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        File history = args.length > 1 ? new File(args[1]) : null;
+        String label = args.length > 2 ? args[2] : "local";
+        System.setProperty("startupProfile", "true"); // the game only writes its profile when asked
+        new File(PROFILE_FILE).delete(); // never report the spans of an earlier run
+
+        double[] millis = new double[launches];
+        JsonValue coldProfile = null;
+        for (int i = 0; i < launches; i++) {
+            millis[i] = launch();
+            if (i == 0) coldProfile = new JsonReader().parse(new FileHandle(PROFILE_FILE));
+            System.out.printf("launch %d: first frame after %.1f ms%n", i + 1, millis[i]);
+        }
+        double cold = millis[0];
+        double warm = launches > 1 ? median(Arrays.copyOfRange(millis, 1, launches)) : cold;
+        System.out.printf("cold %.1f ms, warm median %.1f ms%n", cold, warm);
+        printSlowestSpans(coldProfile);
+
+        if (history != null && !checkHistory(history, label, cold, warm)) System.exit(1);
+    }
+
+    // Boots the game, renders one frame and shuts it down; returns the time to the end of that frame
+    private static double launch() throws InterruptedException {
+        CountDownLatch disposed = new CountDownLatch(1);
+        long[] firstFrame = { 0 };
+        RuntimeException[] failure = { null };
+        long start = System.nanoTime();
+        MainGame game = new MainGame();
+        HeadlessApplicationConfiguration configuration = new HeadlessApplicationConfiguration();
+        configuration.updatesPerSecond = 0; // render as fast as possible; a negative value would never render
+        new HeadlessApplication(new ApplicationListener() {
+            @Override
+            public void create() {
+                Gdx.gl = Gdx.gl20 = MockGL20.create();
+                try {
+                    game.create();
+                } catch (RuntimeException e) {
+                    failure[0] = e;
+                    disposed.countDown();
+                    throw e;
+                }
+            }
+
+            @Override
+            public void resize(int width, int height) {
+                game.resize(width, height);
+            }
+
+            @Override
+            public void render() {
+                game.render();
+                if (firstFrame[0] != 0) return;
+                firstFrame[0] = System.nanoTime();
+                Gdx.app.exit();
+            }
+
+            @Override
+            public void pause() {
+                game.pause();
+            }
+
+            @Override
+            public void resume() {
+                game.resume();
+            }
+
+            @Override
+            public void dispose() {
+                game.dispose();
+                disposed.countDown();
+            }
+        }, configuration);
+        if (!disposed.await(60, TimeUnit.SECONDS)) throw new IllegalStateException("Game did not start within 60 s");
+        if (failure[0] != null) throw new IllegalStateException("Game failed to start", failure[0]);
+        return (firstFrame[0] - start) / 1e6;
+    }
+
+    private static void printSlowestSpans(JsonValue profile) {
+        List<JsonValue> spans = new ArrayList<>();
+        for (JsonValue span = profile.get("spans").child; span != null; span = span.next) spans.add(span);
+        // Leaves only, so a phase does not hide the assets it loads
+        List<JsonValue> leaves = new ArrayList<>();
+        for (int i = 0; i < spans.size(); i++) {
+            boolean hasChildren = i + 1 < spans.size() && spans.get(i + 1).getInt("depth") > spans.get(i).getInt("depth");
+            if (!hasChildren) leaves.add(spans.get(i));
+        }
+        leaves.sort((a, b) -> Double.compare(b.getDouble("ms"), a.getDouble("ms")));
+        System.out.println("slowest spans of the cold launch:");
+        for (int i = 0; i < Math.min(SLOWEST_SPANS, leaves.size()); i++) {
+            System.out.printf("  %8.2f ms  %s%n", leaves.get(i).getDouble("ms"), leaves.get(i).getString("name"));
+        }
+    }
+
+    // Appends this run and compares it with the previous ones; false on a regression
+    private static boolean checkHistory(File history, String label, double cold, double warm) throws IOException {
+        List<Double> previous = new ArrayList<>();
+        if (history.exists()) {
+            for (String line : Files.readAllLines(history.toPath(), StandardCharsets.UTF_8)) {
+                String[] fields = line.split(",");
+                if (fields.length == 4 && !fields[0].equals("label")) previous.add(Double.parseDouble(fields[3]));
+            }
+        }
+        boolean header = !history.exists();
+        if (history.getParentFile() != null) history.getParentFile().mkdirs();
+        try (PrintWriter writer = new PrintWriter(new FileWriter(history, true))) {
+            if (header) writer.println("label,timestamp,cold_ms,warm_ms");
+            writer.printf("%s,%d,%.1f,%.1f%n", label, System.currentTimeMillis() / 1000, cold, warm);
+        }
+        if (previous.isEmpty()) return true;
+        List<Double> recent = previous.subList(Math.max(0, previous.size() - HISTORY_WINDOW), previous.size());
+        double[] values = new double[recent.size()];
+        for (int i = 0; i < values.length; i++) values[i] = recent.get(i);
+        double baseline = median(values);
+        System.out.printf("warm %.1f ms against %.1f ms, the median of the last %d runs (%+.0f%%)%n",
+            warm, baseline, values.length, (warm / baseline - 1) * 100);
+        if (warm <= baseline * REGRESSION_RATIO) return true;
+        System.out.println("startup regressed by more than " + Math.round((REGRESSION_RATIO - 1) * 100) + "%");
+        return false;
+    }
+
+    private static double median(double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
@@ -0,0 +1,97 @@
+package com.marccortes.spaceInvaders.server;
+
+import com.marccortes.spaceInvaders.Varint;
+
+import java.nio.ByteBuffer;
+
+// Encodes a match state as the difference to the state the client already has.
+// The two states are XORed byte by byte, so everything that did not move becomes zero, and
+// the result is written as alternating runs: a varint count of unchanged bytes to skip,
+// then a varint count of changed bytes followed by their XOR values. An empty previous
+// state turns the delta into a keyframe.
+final class StateDelta {
+    private static final int MIN_SKIP = 3; // shorter zero runs cost more as a token than as literals
+
+    // A state as raw bytes plus its length; the array is reused and only grows
+    static final class State {
+        byte[] bytes = new byte[4096];
+        int length;
+
+        void set(ByteBuffer source) {
+            ensureCapacity(source.remaining());
+            length = source.remaining();
+            source.get(bytes, 0, length);
+        }
+
+        void copyFrom(State other) {
+            ensureCapacity(other.length);
+            System.arraycopy(other.bytes, 0, bytes, 0, other.length);
+            length = other.length;
+        }
+
+        void ensureCapacity(int capacity) {
+            if (bytes.length < capacity) {
+                byte[] grown = new byte[Math.max(capacity, bytes.length * 2)];
+                System.arraycopy(bytes, 0, grown, 0, length);
+                bytes = grown;
+            }
+        }
+    }
+
+    private StateDelta() {
+    }
+
+    // Upper bound of an encoded delta, for sizing output buffers
+    static int maxEncodedSize(int stateLength) {
+        return 5 + stateLength + (stateLength / MIN_SKIP + 1) * 10;
+    }
+
+    static void encode(State previous, State current, ByteBuffer out) {
+        byte[] before = previous.bytes;
+        byte[] after = current.bytes;
+        int beforeLength = previous.length;
+        int length = current.length;
+        Varint.write(out, length);
+        int i = 0;
+        while (i < length) {
+            int skipStart = i;
+            while (i < length && xor(before, beforeLength, after, i) == 0) i++;
+            int literalStart = i;
+            while (i < length && !zeroRunAt(before, beforeLength, after, length, i)) i++;
+            Varint.write(out, literalStart - skipStart);
+            Varint.write(out, i - literalStart);
+            for (int k = literalStart; k < i; k++) {
+                out.put(xor(before, beforeLength, after, k));
+            }
+        }
+    }
+
+    // Applies a delta to the state in place
+    static void decode(ByteBuffer in, State state) {
+        int length = Varint.read(in);
+        state.ensureCapacity(length);
+        // Bytes past the old end were XORed against zero
+        for (int i = state.length; i < length; i++) state.bytes[i] = 0;
+        state.length = length;
+        int i = 0;
+        while (i < length) {
+            i += Varint.read(in);
+            int literals = Varint.read(in);
+            for (int k = 0; k < literals; k++, i++) {
+                state.bytes[i] ^= in.get();
+            }
+        }
+    }
+
+    private static byte xor(byte[] before, int beforeLength, byte[] after, int i) {
+        return (byte) (after[i] ^ (i < beforeLength ? before[i] : 0));
+    }
+
+    private static boolean zeroRunAt(byte[] before, int beforeLength, byte[] after, int length, int i) {
+        if (i + MIN_SKIP > length) return false;
+        for (int k = i; k < i + MIN_SKIP; k++) {
+            if (xor(before, beforeLength, after, k) != 0) return false;
+        }
+        return true;
+    }
+}